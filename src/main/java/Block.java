@@ -0,0 +1,526 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * A block of the blockchain: its index, creation time, transactions, difficulty, the hash of
+ * the previous block and the nonce found by its proof of work. Blocks hash, mine and verify
+ * themselves, and are written to JSON in the form clients have always seen.
+ */
+// Imports for necessary libraries and classes
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import java.lang.reflect.Type;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+class Block {
+    // Blocks are kept compact: hashes are raw bytes and the nonce and timestamp primitive longs.
+    // Hex strings, Timestamp and BigInteger objects are only made at the edges (getters, hash
+    // input and JSON), which keep exactly the text they always had.
+    // Marks a block that has not been mined yet.
+    private static final long NO_NONCE = -1;
+    // Highest difficulty a block can have: the number of hex digits in a SHA-256 hash.
+    static final int MAX_DIFFICULTY = 64;
+    // Gson for blocks, shared since Gson is thread safe.
+    // part of GsonBuilder code taken from Stackoverflow, url:https://stackoverflow.com/questions/14939395/does-gson-mess-up-timestamp-variables
+    static final Gson JSON = new GsonBuilder().setDateFormat("yyyy-MM-dd hh:mm:ss.S")
+            .registerTypeAdapter(Block.class, new Serializer()).create();
+    // Instance variables
+    private int index; // Index of the block
+    private long timestamp; // Time the block was created, in epoch milliseconds
+    private ArrayList<String> data; // Transactions stored in the block
+    private byte[] previousHash; // Raw hash of the previous block, empty for the genesis block
+    private long nonce = NO_NONCE; // Nonce used in proof of work, NO_NONCE until mined
+    private int difficulty; // Difficulty level for proof of work
+    private transient volatile byte[] merkleRoot; // Raw Merkle root of the transactions, computed when first needed
+    private transient volatile byte[] hash; // Raw hash of the block, computed when first needed after each change
+    private transient BlockChain chain; // Chain the block was appended to, told about every change
+    private transient int position = -1; // Position of the block in that chain's store
+    /**
+     * Constructor for creating a new Block object.
+     *
+     * @param index      The index of the block.
+     * @param timestamp  The timestamp of when the block was created.
+     * @param data       The data to be stored in the block.
+     * @param difficulty The difficulty level for proof of work.
+     */
+    public Block(int index, Timestamp timestamp, String data, int difficulty) {
+        this(index, timestamp, List.of(data), difficulty);
+    }
+    /**
+     * Constructor for creating a new Block object holding several transactions.
+     *
+     * @param index        The index of the block.
+     * @param timestamp    The timestamp of when the block was created.
+     * @param transactions The transactions to be stored in the block.
+     * @param difficulty   The difficulty level for proof of work.
+     */
+    public Block(int index, Timestamp timestamp, List<String> transactions, int difficulty) {
+        this.index = index;
+        this.timestamp = timestamp.getTime();
+        this.data = new ArrayList<>(transactions);
+        this.difficulty = difficulty;
+    }
+    /**
+     * Copies the block without attaching the copy to a chain, so changing it reaches no chain.
+     * @return The copy, sharing the cached hash.
+     */
+    Block copy() {
+        return fromRaw(index, timestamp, data, previousHash, nonce, difficulty, hash);
+    }
+    /**
+     * Rebuilds a block from its raw fields, as kept by a block store.
+     * @param index        The index of the block.
+     * @param timestamp    The time the block was created, in epoch milliseconds.
+     * @param transactions The transactions stored in the block.
+     * @param previousHash The raw hash of the previous block.
+     * @param nonce        The nonce the block was mined with, -1 if not mined.
+     * @param difficulty   The difficulty level for proof of work.
+     * @param hash         The raw hash of the block, or null to compute it when needed.
+     * @return The block.
+     */
+    static Block fromRaw(int index, long timestamp, List<String> transactions, byte[] previousHash,
+                         long nonce, int difficulty, byte[] hash) {
+        Block blk = new Block(index, new Timestamp(timestamp), transactions, difficulty);
+        blk.previousHash = previousHash;
+        blk.nonce = nonce;
+        blk.hash = hash;
+        return blk;
+    }
+    /**
+     * Getter method for retrieving the timestamp of the block without creating a Timestamp.
+     * @return The time the block was created, in epoch milliseconds.
+     */
+    long timestampMillis() {
+        return timestamp;
+    }
+    /**
+     * Getter method for retrieving the nonce of the block without creating a BigInteger.
+     * @return The nonce of the block, -1 if it has not been mined yet.
+     */
+    long nonceValue() {
+        return nonce;
+    }
+    /**
+     * Getter method for retrieving the raw previous hash of the block.
+     * @return The raw previous hash, which must not be modified.
+     */
+    byte[] previousHashBytes() {
+        return previousHash;
+    }
+    /**
+     * Getter method for retrieving the nonce of the block.
+     * @return The nonce of the block, or null if it has not been mined yet.
+     */
+    public BigInteger getNonce() {
+        return nonce == NO_NONCE ? null : BigInteger.valueOf(nonce);
+    }
+    /**
+     * Getter method for retrieving the difficulty of the block.
+     * @return The difficulty of the block.
+     */
+    public int getDifficulty() {
+        return difficulty;
+    }
+    /**
+     * Getter method for retrieving the transactions of the block.
+     * @return An unmodifiable view of the transactions of the block.
+     */
+    public List<String> getData() {
+        return Collections.unmodifiableList(data);
+    }
+    /**
+     * Getter method for retrieving the previous hash of the block.
+     * @return The previous hash of the block.
+     */
+    public String getPreviousHash() {
+        return previousHash == null ? null : bytesToHex(previousHash);
+    }
+    /**
+     * Getter method for retrieving the index of the block.
+     * @return The index of the block.
+     */
+    public int getIndex() {
+        return index;
+    }
+    /**
+     * Getter method for retrieving the timestamp of the block.
+     * @return The timestamp of the block.
+     */
+    public Timestamp getTimestamp() {
+        return new Timestamp(timestamp);
+    }
+    /**
+     * Setter method for replacing the transactions of the block with a single one.
+     * @param data The new transaction to be stored in the block.
+     */
+    public void setData(String data) {
+        setData(List.of(data));
+    }
+    /**
+     * Setter method for replacing the transactions of the block.
+     * @param transactions The new transactions to be stored in the block.
+     */
+    public void setData(List<String> transactions) {
+        this.data = new ArrayList<>(transactions);
+        // The Merkle root no longer matches the transactions
+        this.merkleRoot = null;
+        invalidateHash();
+    }
+    /**
+     * Getter method for retrieving the Merkle root of the block's transactions.
+     * @return The hex encoded Merkle root.
+     */
+    public String getMerkleRoot() {
+        // Compute the root once per change of the transactions
+        byte[] root = merkleRoot;
+        if (root == null) {
+            root = MerkleTree.rootBytes(data);
+            merkleRoot = root;
+        }
+        return bytesToHex(root);
+    }
+    /**
+     * Setter method for updating the difficulty of the block.
+     * @param difficulty The new difficulty level for proof of work.
+     */
+    public void setDifficulty(int difficulty) {
+        this.difficulty = difficulty;
+        invalidateHash();
+    }
+    /**
+     * Setter method for updating the index of the block.
+     * @param index The new index of the block.
+     */
+    public void setIndex(int index) {
+        // The block at the old index changes as well
+        invalidateHash();
+        this.index = index;
+        invalidateHash();
+    }
+    /**
+     * Setter method for updating the previous hash of the block.
+     * @param previousHash The new previous hash of the block.
+     */
+    public void setPreviousHash(String previousHash) {
+        byte[] raw = previousHash == null ? null : hexToBytes(previousHash);
+        // Only hashes this class produced can be stored raw and given back unchanged
+        if (raw != null && !bytesToHex(raw).equals(previousHash)) {
+            throw new IllegalArgumentException("Not an uppercase hex hash: " + previousHash);
+        }
+        this.previousHash = raw;
+        invalidateHash();
+    }
+    /**
+     * Setter method for updating the timestamp of the block.
+     * @param timestamp The new timestamp of the block, kept to the millisecond.
+     */
+    public void setTimestamp(Timestamp timestamp) {
+        this.timestamp = timestamp.getTime();
+        invalidateHash();
+    }
+    /**
+     * Setter method for restoring the nonce of a block read back from storage.
+     * @param nonce The nonce the block was mined with.
+     */
+    void setNonce(BigInteger nonce) {
+        this.nonce = nonce.longValueExact();
+        invalidateHash();
+    }
+    /**
+     * Drops the cached hash after a change to any of the hashed fields,
+     * and tells the chain holding the block that it changed.
+     */
+    private void invalidateHash() {
+        hash = null;
+        if (chain != null) {
+            chain.blockChanged(this, index);
+        }
+    }
+    /**
+     * Seeds the cached hash of a block read back from a snapshot, without re-hashing it.
+     * @param hash The raw 32 byte hash the block had when the snapshot was taken.
+     */
+    void restoreHash(byte[] hash) {
+        this.hash = hash;
+    }
+    /**
+     * Records the chain the block was appended to.
+     * @param chain The chain holding the block.
+     * @param position The position of the block in the chain's store.
+     */
+    void attachTo(BlockChain chain, int position) {
+        this.chain = chain;
+        this.position = position;
+    }
+    /**
+     * Getter method for retrieving the position of the block in the chain it is attached to.
+     * @return The position of the block, -1 if not attached.
+     */
+    int getPosition() {
+        return position;
+    }
+    /**
+     * Method to calculate the hash of the block using SHA-256.
+     * @return The hash of the block.
+     */
+    public String calculateHash() {
+        return bytesToHex(hashBytes());
+    }
+    /**
+     * Method to get the raw hash of the block, without converting it to hex.
+     * @return The 32 byte hash of the block, which must not be modified.
+     */
+    byte[] hashBytes() {
+        // Reuse the hash computed since the last change of the block
+        byte[] cached = hash;
+        if (cached == null) {
+            // Hash the block with its current nonce.
+            cached = calculateHash(nonce);
+            hash = cached;
+        }
+        return cached;
+    }
+    /**
+     * Method to check whether the stored hash of the block is the hash of its current contents.
+     * The hash is computed again, whatever was cached or restored from a snapshot or a page.
+     * @return True if the stored hash matches the contents of the block.
+     */
+    boolean hashMatchesContents() {
+        byte[] fresh = calculateHash(nonce);
+        byte[] stored = hash;
+        if (stored == null) {
+            // Nothing stored yet, keep the hash just computed
+            hash = fresh;
+            return true;
+        }
+        return Arrays.equals(stored, fresh);
+    }
+    /**
+     * Method to check whether the block links to the given block by its previous hash.
+     * @param previous The block expected before this one.
+     * @return True if the previous hash of this block is the hash of the given block.
+     */
+    boolean linksTo(Block previous) {
+        return Arrays.equals(previousHash, previous.hashBytes());
+    }
+    /**
+     * Method to check whether the hash of the block meets its target difficulty.
+     * @return True if the hash starts with as many zero hex digits as the difficulty.
+     */
+    boolean meetsTarget() {
+        return MiningKernel.meetsTarget(hashBytes(), difficulty);
+    }
+    /**
+     * Method to calculate the raw hash the block would have with the given nonce,
+     * without changing the block. Safe to call from several threads at once.
+     * @param nonce The nonce to hash the block with.
+     * @return The 32 byte hash of the block with that nonce.
+     */
+    byte[] calculateHash(long nonce) {
+        // Initialize MessageDigest object
+        MessageDigest md = null;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Handle exception
+            throw new RuntimeException(e);
+        }
+        // Concatenate block data for hashing
+        String hashData = new StringBuilder().append(hashPrefix())
+                .append(nonce)
+                .append(difficulty)
+                .toString();
+        // Update MessageDigest with hashData bytes
+        md.update(hashData.getBytes());
+        // Keep the digest raw, hex is only made when asked for
+        return md.digest();
+    }
+    /**
+     * Method to build the part of the hash input that comes before the nonce.
+     * @return The index, timestamp, Merkle root and previous hash of the block concatenated.
+     *         The block commits to its transactions through the Merkle root, so the
+     *         hash input has the same size however many transactions the block holds.
+     */
+    String hashPrefix() {
+        // The hash input keeps the text forms the fields always had
+        return new StringBuilder().append(index)
+                .append(new Timestamp(timestamp))
+                .append(getMerkleRoot())
+                .append(getPreviousHash())
+                .toString();
+    }
+    /**
+     * Method to perform proof of work by finding a hash that meets the target difficulty.
+     * @return The hash of the block after proof of work.
+     */
+    public String proofOfWork() {
+        // Mine without any limits
+        return proofOfWork(MiningBudget.unlimited());
+    }
+    /**
+     * Method to perform proof of work until a hash meets the target difficulty
+     * or the budget runs out.
+     * @param budget The limits of the proof of work.
+     * @return The hash of the block after proof of work, or null if the budget
+     *         ran out first, in which case the nonce is left unchanged.
+     */
+    public String proofOfWork(MiningBudget budget) {
+        // Start the clock of the budget
+        budget.start();
+        // Hash the fixed part of the block once for all nonces
+        MiningKernel kernel = new MiningKernel(this);
+        // Start with nonce 0
+        long candidate = 0;
+        // Loop until hash meets target difficulty
+        while (!kernel.tryNonce(candidate)) {
+            // Increment nonce
+            candidate++;
+            // Check the budget every so often
+            if (candidate % MiningBudget.CHECK_INTERVAL == 0 && !budget.record(MiningBudget.CHECK_INTERVAL)) {
+                // Give up without a valid nonce
+                return null;
+            }
+        }
+        // Count the hashes tried since the last check
+        budget.record(candidate % MiningBudget.CHECK_INTERVAL + 1);
+        // Store the winning nonce
+        nonce = candidate;
+        invalidateHash();
+        // The kernel already computed the hash for that nonce
+        hash = kernel.lastDigest();
+        // Return hash after proof of work
+        return calculateHash();
+    }
+    /**
+     * Method to perform proof of work on all worker threads of the given miner.
+     * @param miner The parallel miner searching the nonce space.
+     * @return The hash of the block after proof of work.
+     */
+    public String proofOfWork(ParallelMiner miner) {
+        // Mine without any limits
+        return proofOfWork(miner, MiningBudget.unlimited());
+    }
+    /**
+     * Method to perform proof of work on all worker threads of the given miner
+     * until a hash meets the target difficulty or the budget runs out.
+     * @param miner The parallel miner searching the nonce space.
+     * @param budget The limits of the proof of work.
+     * @return The hash of the block after proof of work, or null if the budget
+     *         ran out first, in which case the nonce is left unchanged.
+     */
+    public String proofOfWork(ParallelMiner miner, MiningBudget budget) {
+        // Let the miner find a nonce that meets the target difficulty
+        BigInteger found = miner.findNonce(this, budget);
+        // Leave the block as it was if the budget ran out
+        if (found == null) {
+            return null;
+        }
+        // Store the winning nonce
+        nonce = found.longValueExact();
+        invalidateHash();
+        // Return hash after proof of work
+        return calculateHash();
+    }
+    /**
+     * Method to convert the block to a JSON formatted string.
+     * @return JSON representation of the block.
+     */
+    @Override
+    public String toString() {
+        // Serialize with the shared Gson configured for blocks.
+        return JSON.toJson(this);
+    }
+    /**
+     * Writes a block as JSON with the fields in their original text forms, the timestamp
+     * going through the date format of the Gson instance in use.
+     */
+    static class Serializer implements JsonSerializer<Block> {
+        /**
+         * Converts a block to JSON.
+         * @param blk The block to convert.
+         * @param type The type of the block.
+         * @param context The context used to serialize the timestamp.
+         * @return The JSON object of the block.
+         */
+        @Override
+        public JsonElement serialize(Block blk, Type type, JsonSerializationContext context) {
+            JsonObject json = new JsonObject();
+            json.addProperty("index", blk.index);
+            json.add("timestamp", context.serialize(blk.getTimestamp()));
+            json.add("data", context.serialize(blk.data));
+            // Missing values are left out, as Gson does for null fields
+            if (blk.previousHash != null) {
+                json.addProperty("previousHash", blk.getPreviousHash());
+            }
+            if (blk.nonce != NO_NONCE) {
+                json.addProperty("nonce", blk.nonce);
+            }
+            json.addProperty("difficulty", blk.difficulty);
+            return json;
+        }
+    }
+    /**
+     * Method to generate a target string based on the block difficulty.
+     * @param diff The difficulty level.
+     * @return The target string.
+     */
+    private static String getTargetString(int diff) {
+        // Create a StringBuilder object to build the target string.
+        StringBuilder targetBuild = new StringBuilder();
+        // Loop until the number of leading zeros is equal to the specified difficulty.
+        while (diff > 0) {
+            // Append '0' to the target string.
+            targetBuild.append("0");
+            // Decrement the difficulty.
+            diff--;
+        }
+        // Return the target string.
+        return targetBuild.toString();
+    }
+    // Array representing hexadecimal characters
+    private static final char[] HEX_ARRAY = "0123456789ABCDEF".toCharArray();
+    /**
+     * Method to convert an array of bytes to a hexadecimal string.
+     * @param bytes The array of bytes to be converted.
+     * @return The hexadecimal representation of the input byte array.
+     * Code taken from stackOverflow, url:https://stackoverflow.com/questions/9655181/java-convert-a-byte-array-to-a-hex-string
+     */
+    static String bytesToHex(byte[] bytes) {
+        // Create a character array to store hexadecimal characters.
+        char[] hexChars = new char[bytes.length * 2];
+        // Iterate over each byte in the input array.
+        for (int j = 0; j < bytes.length; j++) {
+            // Convert the byte to an integer and mask it to ensure only the last 8 bits are considered.
+            int v = bytes[j] & 0xFF;
+            // Retrieve the hexadecimal representation of the upper 4 bits of the byte.
+            hexChars[j * 2] = HEX_ARRAY[v >>> 4];
+            // Retrieve the hexadecimal representation of the lower 4 bits of the byte.
+            hexChars[j * 2 + 1] = HEX_ARRAY[v & 0x0F];
+        }
+        // Create and return a new string from the character array.
+        return new String(hexChars);
+    }
+    /**
+     * Method to convert a hexadecimal string to an array of bytes.
+     * @param hex The hexadecimal string.
+     * @return The bytes it encodes.
+     */
+    static byte[] hexToBytes(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,1113 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * The blockchain kept by the server: its blocks, chain hash, indexes and difficulty
+ * statistics, guarded by a read-write lock, with verification, repair and durable storage.
+ */
+// Imports for necessary libraries and classes
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+class BlockChain {
+    // Pretty-printing Gson for the whole chain, shared since Gson is thread safe.
+    private static final Gson PRETTY_JSON = Block.JSON.newBuilder().setPrettyPrinting().create();
+    // Store holding all the blocks in the blockchain.
+    private final BlockStore blocks;
+    // String storing the current hash of the blockchain.
+    private String chainHash;
+    // Integer tracking the system's hash rate (hashes per second).
+    private int hashesPerSecond;
+    // Integer tracking the hash rate of all mining threads together.
+    private int parallelHashesPerSecond;
+    // Miner used for proof of work, or null to mine on the calling thread.
+    private ParallelMiner miner;
+    // Highest index up to which every block is known to be valid, -1 if none.
+    // Concurrent verifications move it while holding only the read lock, by compare-and-set
+    // from the value they started with; writers move it under the write lock.
+    private final AtomicInteger verifiedUpTo = new AtomicInteger(-1);
+    // Running difficulty statistics of the blocks.
+    private ChainStats stats;
+    // Durable log of the chain's changes, or null to keep the chain in memory only.
+    private BlockLog log;
+    // Indexes of blocks changed in place since they were last logged.
+    private final TreeSet<Integer> dirtyBlocks = new TreeSet<>();
+    // Number of in-place block changes so far, used to spot a change during a snapshot.
+    private long changeCount;
+    // Hash and timestamp indexes of the blocks, updated as blocks are appended or changed.
+    private final ChainIndex index = new ChainIndex();
+    // Inverted index over the transactions of the blocks, updated as blocks are appended or changed.
+    private TransactionIndex txIndex = new TransactionIndex(TransactionIndex.DEFAULT_MAX_TOKENS, TransactionIndex.DEFAULT_MAX_POSTINGS);
+    // Lets any number of readers in at once, or a single writer. Connections read the chain
+    // concurrently, while every write runs on the MiningService thread.
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * Constructs a new blockchain instance keeping its blocks on the heap.
+     */
+    public BlockChain() {
+        this(new HeapBlockStore());
+    }
+    /**
+     * Constructs a new blockchain instance keeping its blocks in the given store.
+     * @param store The empty store to hold the blockchain's blocks.
+     */
+    public BlockChain(BlockStore store) {
+        // Keep the blockchain's blocks in the given store.
+        blocks = store;
+        // Initialize the hash rate (hashes per second) to zero.
+        hashesPerSecond = 0;
+        // Initialize the blockchain's overall hash to an empty string.
+        chainHash = "";
+        // Start the statistics with no blocks.
+        stats = new ChainStats();
+    }
+    /**
+     * Retrieves the current hash of the blockchain.
+     * @return A string representing the current blockchain hash.
+     */
+    public String getChainHash() {
+        lock.readLock().lock();
+        try {
+            // Return the current blockchain hash.
+            return chainHash;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the current rate of hash calculations (hashes per second).
+     * @return The current hash rate as an integer.
+     */
+    public int getHashesPerSecond() {
+        // Return the current hash rate.
+        return hashesPerSecond;
+    }
+
+    /**
+     * Retrieves the combined hash rate of all mining threads.
+     * @return The parallel hash rate as an integer.
+     */
+    public int getParallelHashesPerSecond() {
+        // Return the parallel hash rate.
+        return parallelHashesPerSecond;
+    }
+
+    /**
+     * Sets the miner used for proof of work by addBlock and repairChain.
+     * @param miner The parallel miner, or null to mine on the calling thread.
+     */
+    public void setMiner(ParallelMiner miner) {
+        this.miner = miner;
+    }
+
+    /**
+     * Sets the inverted index used by searchTransactions, indexing the blocks already in the chain.
+     * @param txIndex The empty transaction index.
+     */
+    public void setTransactionIndex(TransactionIndex txIndex) {
+        lock.writeLock().lock();
+        try {
+            this.txIndex = txIndex;
+            for (int i = 0; i < blocks.size(); i++) {
+                txIndex.add(i, blocks.get(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs a task holding the chain's write lock, so readers see the changes it makes
+     * to the chain's blocks all at once.
+     * @param task The task to run.
+     * @return The result of the task.
+     * @throws Exception If the task throws.
+     */
+    public <T> T callExclusive(Callable<T> task) throws Exception {
+        lock.writeLock().lock();
+        try {
+            return task.call();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the chain from a durable log and keeps logging every change to it.
+     * Blocks are read back as they were written, without re-mining them.
+     * Must be called on an empty chain.
+     * @param log The log to replay and append to.
+     * @throws IOException If the log cannot be read.
+     */
+    public void restore(BlockLog log) throws IOException {
+        restore(null, log);
+    }
+
+    /**
+     * Rebuilds the chain from a snapshot plus the records logged after it, and keeps
+     * logging every change. Without a usable snapshot the whole log is replayed.
+     * Must be called on an empty chain.
+     * @param snapshotFile The snapshot file, or null to replay the whole log.
+     * @param log The log to replay and append to.
+     * @throws IOException If the snapshot or the log cannot be read.
+     */
+    public void restore(Path snapshotFile, BlockLog log) throws IOException {
+        lock.writeLock().lock();
+        try {
+            // Start from the snapshot if there is a good one.
+            ChainSnapshot snapshot = snapshotFile == null ? null : ChainSnapshot.read(snapshotFile, blocks);
+            BlockLog.Position from = new BlockLog.Position(0, 0, 0);
+            index.clear();
+            txIndex.clear();
+            if (snapshot == null) {
+                // Drop whatever a damaged snapshot left behind.
+                blocks.clear();
+            } else {
+                // Index the blocks of the snapshot, the log records after it are indexed as replayed.
+                for (int i = 0; i < blocks.size(); i++) {
+                    Block blk = blocks.get(i);
+                    index.add(i, blk);
+                    txIndex.add(i, blk);
+                }
+                // The blocks are attached to the chain when they are handed out.
+                stats = snapshot.stats;
+                chainHash = snapshot.chainHash;
+                from = snapshot.position;
+            }
+            // Replay only what was logged after the snapshot.
+            log.replay(new BlockLog.Replay() {
+                @Override
+                public void append(Block blk) {
+                    blocks.add(blk);
+                    index.add(blocks.size() - 1, blk);
+                    txIndex.add(blocks.size() - 1, blk);
+                    stats.append(blk.getDifficulty());
+                    blk.attachTo(BlockChain.this, blocks.size() - 1);
+                    // The chain hash follows the appended block, computed once replay is done.
+                    chainHash = null;
+                }
+                @Override
+                public void replace(Block blk) {
+                    blocks.set(blk.getIndex(), blk);
+                    blk.attachTo(BlockChain.this, blk.getIndex());
+                    blockChanged(blk, blk.getIndex());
+                }
+                @Override
+                public void chainHash(String hash) {
+                    chainHash = hash;
+                }
+            }, from);
+            // Hash the latest block if the last record appended it.
+            if (chainHash == null) {
+                chainHash = getLatestBlock().calculateHash();
+            }
+            // Log every change from now on.
+            this.log = log;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the blocks changed in place since the last call, and the chain hash, to the
+     * durable log and waits until they are on disk. Does nothing without a log.
+     */
+    public void persistChanges() {
+        long seq;
+        lock.writeLock().lock();
+        try {
+            if (log == null || dirtyBlocks.isEmpty()) {
+                return;
+            }
+            for (int i : dirtyBlocks) {
+                log.replace(blocks.get(i));
+            }
+            dirtyBlocks.clear();
+            seq = log.recordChainHash(chainHash);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // Wait for the group commit outside the lock.
+        log.awaitDurable(seq);
+    }
+
+    /**
+     * Writes a snapshot of the chain for a fast restart. Only a view of the blocks stored so
+     * far and a copy of the statistics are taken under the lock, so appends carry on while
+     * the snapshot is encoded. The snapshot is dropped if a block was changed in place in
+     * the meantime, since the change shows through the view.
+     * Does nothing without a log, since the snapshot records the log position it covers.
+     * @param snapshotFile The snapshot file to replace.
+     * @return True if the snapshot was written.
+     */
+    public boolean writeSnapshot(Path snapshotFile) {
+        ChainSnapshot snapshot;
+        long changes;
+        lock.readLock().lock();
+        try {
+            // Wait for pending in-place changes to be logged first.
+            if (log == null || !dirtyBlocks.isEmpty()) {
+                return false;
+            }
+            snapshot = new ChainSnapshot(log.position(), chainHash, blocks.view(), stats.copy());
+            changes = changeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+        // The log must hold everything up to the snapshot's position before it is skipped on restart.
+        log.awaitDurable(snapshot.position.seq);
+        try {
+            Path tmp;
+            try {
+                tmp = snapshot.write(snapshotFile);
+            } catch (RuntimeException e) {
+                // A block changed in place while it was read can fail to decode, try again next time.
+                if (changedSince(changes)) {
+                    return false;
+                }
+                throw e;
+            }
+            if (changedSince(changes)) {
+                // A block changed while it was being encoded, try again next time.
+                Files.delete(tmp);
+                return false;
+            }
+            ChainSnapshot.install(tmp, snapshotFile);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a block was changed in place since a count of changes was taken.
+     * @param changes The number of in-place changes at the time.
+     * @return True if a block changed since.
+     */
+    private boolean changedSince(long changes) {
+        lock.readLock().lock();
+        try {
+            return changes != changeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the number of threads used for proof of work.
+     * @return The number of mining threads.
+     */
+    public int getMiningThreads() {
+        // A chain without a miner mines on the calling thread only.
+        return miner == null ? 1 : miner.getThreads();
+    }
+
+    /**
+     * Retrieves the current system time.
+     * @return A Timestamp object representing the current system time.
+     */
+    public Timestamp getTime() {
+        // Return the current system time as a Timestamp object.
+        return new Timestamp(System.currentTimeMillis());
+    }
+    /**
+     * Retrieves the latest block in the blockchain.
+     * @return The most recently added Block object.
+     */
+    public Block getLatestBlock() {
+        lock.readLock().lock();
+        try {
+            // Return the last Block in the store.
+            return attached(blocks.size() - 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    /**
+     * Retrieves a specific block from the blockchain.
+     * @param i The index of the block in the blockchain.
+     * @return The Block object at the specified index.
+     */
+    public Block getBlock(int i) {
+        lock.readLock().lock();
+        try {
+            // Return the Block at the specified index.
+            return attached(i);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    /**
+     * Retrieves a range of blocks under one acquisition of the read lock.
+     * @param from The index of the first block.
+     * @param to The index after the last block; clamped to the size of the chain.
+     * @return The blocks of the range, in order.
+     */
+    public List<Block> getBlocks(int from, int to) {
+        lock.readLock().lock();
+        try {
+            int start = Math.max(0, from);
+            int end = Math.min(to, blocks.size());
+            List<Block> range = new ArrayList<>(Math.max(0, end - start));
+            for (int i = start; i < end; i++) {
+                range.add(attached(i));
+            }
+            return range;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves a block from the store and attaches it to the chain, so changes
+     * to it reach the chain and, for a view, the store.
+     * @param i The index of the block.
+     * @return The block at the specified index.
+     */
+    private Block attached(int i) {
+        Block blk = blocks.get(i);
+        blk.attachTo(this, i);
+        return blk;
+    }
+
+    /**
+     * Finds a block by its hash through the hash index.
+     * @param hash The hex encoded hash of the block.
+     * @return The block, or null if no block has that hash.
+     */
+    public Block findBlockByHash(String hash) {
+        lock.readLock().lock();
+        try {
+            int i = index.findByHash(blocks, hash);
+            return i < 0 ? null : attached(i);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the blocks created within a time window through the timestamp index.
+     * @param from The start of the window in epoch milliseconds, inclusive.
+     * @param to The end of the window in epoch milliseconds, inclusive.
+     * @return The blocks, ordered by timestamp.
+     */
+    public List<Block> findBlocksByTimeRange(long from, long to) {
+        lock.readLock().lock();
+        try {
+            List<Block> found = new ArrayList<>();
+            for (int i : index.findByTimeRange(from, to)) {
+                found.add(attached(i));
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Describes where the blocks of the chain are kept.
+     * @return A one-line description of the block store.
+     */
+    public String describeStorage() {
+        lock.readLock().lock();
+        try {
+            return blocks.describe();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the blocks whose transactions mention every word of a query, through the transaction index.
+     * @param query The words to search for, in any case.
+     * @param offset The number of matching blocks to skip.
+     * @param limit The maximum number of matching blocks to return.
+     * @return One page of the indexes of the matching blocks, in chain order.
+     */
+    public TransactionIndex.Page searchTransactions(String query, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            return txIndex.search(query, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Describes the size of the transaction index.
+     * @return A one-line description of the transaction index.
+     */
+    public String describeTransactionIndex() {
+        lock.readLock().lock();
+        try {
+            return txIndex.describe();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Builds an inclusion proof for a transaction in a block.
+     * @param i The index of the block in the blockchain.
+     * @param tx The transaction to prove.
+     * @return The proof, or null if the block does not hold the transaction.
+     */
+    public MerkleTree.Proof getInclusionProof(int i, String tx) {
+        lock.readLock().lock();
+        try {
+            // Find the transaction in the block.
+            Block blk = blocks.get(i);
+            int txIndex = blk.getData().indexOf(tx);
+            if (txIndex < 0) {
+                return null;
+            }
+            // Fill in the proof with the path from the transaction to the root.
+            MerkleTree.Proof proof = new MerkleTree.Proof();
+            proof.blockIndex = i;
+            proof.blockHash = blk.calculateHash();
+            proof.timestamp = blk.getTimestamp().toString();
+            proof.previousHash = blk.getPreviousHash();
+            proof.nonce = blk.getNonce().longValue();
+            proof.difficulty = blk.getDifficulty();
+            proof.txIndex = txIndex;
+            proof.transaction = tx;
+            proof.merkleRoot = blk.getMerkleRoot();
+            proof.path = MerkleTree.path(blk.getData(), txIndex);
+            return proof;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the total number of blocks in the blockchain.
+     * @return The total number of blocks in the blockchain as an integer.
+     */
+    public int getChainSize() {
+        lock.readLock().lock();
+        try {
+            // Return the size of the blockchain (number of blocks).
+            return blocks.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    /**
+     * Calculates the total difficulty of all blocks in the blockchain.
+     * @return The total difficulty as an integer.
+     */
+    public int getTotalDifficulty() {
+        lock.readLock().lock();
+        try {
+            // Read the running total of all blocks.
+            return blocks.size() == 0 ? 0 : (int) stats.getDifficulty(0, blocks.size() - 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    /**
+     * Calculates the total expected number of hashes based on the difficulty of each block.
+     * @return The total expected hashes as a double.
+     */
+    public double getTotalExpectedHashes() {
+        lock.readLock().lock();
+        try {
+            // Read the running total of all blocks.
+            return blocks.size() == 0 ? 0.0 : stats.getExpectedHashes(0, blocks.size() - 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    /**
+     * Retrieves the lowest difficulty of any block in the blockchain.
+     * @return The lowest difficulty.
+     */
+    public int getMinDifficulty() {
+        lock.readLock().lock();
+        try {
+            return stats.getMinDifficulty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    /**
+     * Retrieves the highest difficulty of any block in the blockchain.
+     * @return The highest difficulty.
+     */
+    public int getMaxDifficulty() {
+        lock.readLock().lock();
+        try {
+            return stats.getMaxDifficulty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    /**
+     * Describes how many blocks of each difficulty the blockchain holds.
+     * @return The difficulty histogram as "difficulty: count" pairs.
+     */
+    public String getDifficultyHistogram() {
+        lock.readLock().lock();
+        try {
+            return stats.describeHistogram();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    /**
+     * Describes the difficulty statistics of a range of blocks.
+     * @param from The first block of the range.
+     * @param to The last block of the range, inclusive.
+     * @return A human-readable summary of the range.
+     */
+    public String describeRange(int from, int to) {
+        lock.readLock().lock();
+        try {
+            return "Blocks " + from + " to " + to
+                    + "\nTotal difficulty: " + stats.getDifficulty(from, to)
+                    + "\nExpected total hashes: " + stats.getExpectedHashes(from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    /**
+     * Computes and updates the system's hash rate (hashes per second).
+     */
+    public void computeHashesPerSecond() {
+        // Declare a variable for the MessageDigest.
+        MessageDigest md = null;
+        try {
+            // Attempt to get an instance of the SHA-256 hash function.
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // If SHA-256 is not available, throw a runtime exception.
+            throw new RuntimeException(e);
+        }
+        // Data to be used in calculating the hash rate.
+        String hashData = "00000000";
+        // Set the number of hashes to compute for the benchmark.
+        int counter = 2000000;
+        // Record the start time of the benchmark.
+        long startTime = System.currentTimeMillis();
+        // Prepare the hash data for computation.
+        md.update(hashData.getBytes());
+        // Compute the specified number of hashes.
+        while(counter != 0) {
+            // Perform a single hash computation.
+            md.digest();
+            // Decrement the counter after each hash computation.
+            counter--;
+        }
+        // Record the end time of the benchmark.
+        long endTime = System.currentTimeMillis();
+        // Calculate and update the hash rate based on the benchmark results.
+        hashesPerSecond = (int) (2000000000 / (endTime - startTime));
+        // Benchmark the miner's threads together, if the chain has one.
+        parallelHashesPerSecond = miner == null ? hashesPerSecond : miner.measureHashesPerSecond();
+    }
+    /**
+     * Runs proof of work on a block, in parallel if the chain has a miner.
+     * @param blk The block to mine.
+     * @return The hash of the block after proof of work.
+     */
+    private String mine(Block blk) {
+        // Mine without any limits.
+        return mine(blk, MiningBudget.unlimited());
+    }
+    /**
+     * Runs proof of work on a block within a budget, in parallel if the chain has a miner.
+     * @param blk The block to mine.
+     * @param budget The limits of the proof of work.
+     * @return The hash of the block after proof of work, or null if the budget ran out.
+     */
+    private String mine(Block blk, MiningBudget budget) {
+        // Fall back to the single threaded proof of work without a miner.
+        return miner == null ? blk.proofOfWork(budget) : blk.proofOfWork(miner, budget);
+    }
+    /**
+     * Adds a new block to the blockchain.
+     * @param newBlock The block to be added.
+     *
+     * The runtime complexity of this method depends on the number
+     * the difficulty level supplied by the user. As the difficulty
+     * level increases, the systems takes longer time.
+     * With difficulty level above 5, we observed an overall increase in
+     * the time required by the system to find the "true hash" via nonce, 10 seconds
+     * for difficulty 6 amd 7, if difficult yis 8 and above the system takes minutes to
+     * complete this operation.
+     *
+     * The proof of work runs without holding the chain's lock, so readers are
+     * only blocked for the final append. Callers must not add blocks concurrently.
+     */
+    public void addBlock(Block newBlock) {
+        // Mine without any limits.
+        addBlock(newBlock, MiningBudget.unlimited());
+    }
+    /**
+     * Adds a new block to the blockchain if its proof of work fits in the budget.
+     * @param newBlock The block to be added.
+     * @param budget The limits of the proof of work.
+     * @return True if the block was mined and added, false if the budget ran out.
+     */
+    public boolean addBlock(Block newBlock, MiningBudget budget) {
+        // Check if the new block is not the first block in the blockchain.
+        if(newBlock.getIndex() != 0) {
+            // Set the previous hash of the new block to the hash of the latest block in the blockchain.
+            newBlock.setPreviousHash(getLatestBlock().calculateHash());
+        }
+        // Perform the proof of work for the new block.
+        String hash = mine(newBlock, budget);
+        // Leave the chain untouched if the budget ran out.
+        if (hash == null) {
+            return false;
+        }
+        // Sequence number of the block in the durable log.
+        long seq = 0;
+        lock.writeLock().lock();
+        try {
+            // Update the chain hash.
+            chainHash = hash;
+            // Add the new block to the blockchain.
+            blocks.add(newBlock);
+            index.add(blocks.size() - 1, newBlock);
+            txIndex.add(blocks.size() - 1, newBlock);
+            // Count the block in the statistics.
+            stats.append(newBlock.getDifficulty());
+            // Log the block.
+            if (log != null) {
+                seq = log.append(newBlock);
+            }
+            // Have the block report its changes to the chain from now on.
+            newBlock.attachTo(this, blocks.size() - 1);
+            // A freshly mined block on a verified chain is valid by construction.
+            verifiedUpTo.compareAndSet(blocks.size() - 2, blocks.size() - 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // Wait for the group commit outside the lock.
+        if (log != null) {
+            log.awaitDurable(seq);
+        }
+        return true;
+    }
+    /**
+     * Called by a block of the chain whenever one of its hashed fields changes.
+     * The block and the link of its successor have to be verified again.
+     * @param blk The block that changed.
+     * @param i The index of the block that changed.
+     */
+    void blockChanged(Block blk, int i) {
+        lock.writeLock().lock();
+        try {
+            // Move the verified prefix back to just before the changed block.
+            verifiedUpTo.accumulateAndGet(i - 1, Math::min);
+            changeCount++;
+            // Store a changed view again where it was read from.
+            if (blk.getPosition() >= 0 && blk.getPosition() < blocks.size()) {
+                blocks.writeBack(blk.getPosition(), blk);
+            }
+            // Pick up a change of difficulty in the statistics.
+            if (i >= 0 && i < blocks.size()) {
+                stats.update(i, blocks.getDifficulty(i));
+                // Index the block again under its new hash and timestamp, and its new transactions.
+                index.changed(i, blocks.get(i));
+                txIndex.changed(i, blocks.get(i));
+                // Remember to log the changed block.
+                if (log != null) {
+                    dirtyBlocks.add(i);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    /**
+     * Retrieves the verified prefix of the chain.
+     * @return The highest index up to which every block is known to be valid, -1 if none.
+     */
+    public int getVerifiedUpTo() {
+        lock.readLock().lock();
+        try {
+            return verifiedUpTo.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    /**
+     * Validates the integrity of the blockchain.
+     * @return A string indicating whether the blockchain is valid.
+     *
+     * The runtime complexity of this method primarily depends on the
+     * number of blocks in the blockchain. The complexity remains relatively
+     * constant regardless of the difficulty level of the proof-of-work algorithm.
+     * This is one of the key functions of blockchain, easy to verify.
+     * As the number of blocks in the blockchain increases, the time taken
+     * to validate entire blockchain also increases. However, the difficulty
+     * level of the proof-of-work algorithm does not impact the overall
+     * execution time of this method.
+     */
+    public String isChainValid() {
+        // Only check blocks added or changed since the last verification.
+        return isChainValid(false);
+    }
+    /**
+     * Validates the integrity of the blockchain.
+     * Blocks are only appended, so by default only the suffix after the verified
+     * prefix is checked; the prefix moves back whenever a block changes.
+     * A full audit also hashes every block again rather than trusting the hashes cached,
+     * read from a snapshot or kept in off-heap pages.
+     * @param full True to re-verify every block, for audits.
+     * @return A string indicating whether the blockchain is valid.
+     */
+    public String isChainValid(boolean full) {
+        lock.readLock().lock();
+        try {
+            // Verified prefix this verification starts from, and moves on from.
+            int seen = verifiedUpTo.get();
+            // A full audit also checks the stored hash of the genesis block.
+            if (full && !blocks.get(0).hashMatchesContents()) {
+                verifiedUpTo.compareAndSet(seen, -1);
+                return storedHashFailure(0);
+            }
+            // Special case: check if the blockchain only contains the genesis block.
+            if (blocks.size() == 1) {
+                // Retrieve the genesis block.
+                Block genesis = blocks.get(0);
+                // Calculate the target string based on the difficulty of the genesis block.
+                String target = getTargetString(genesis);
+                // Calculate the hash of the genesis block.
+                String hashData = genesis.calculateHash();
+                // Check if the genesis block's hash starts with the target string and matches the chain hash.
+                if (hashData.startsWith(target) && chainHash.equals(hashData)) {
+                    // The blockchain is valid.
+                    return "Chain verification: TRUE";
+                } else {
+                    // The genesis block is corrupted.
+                    return "Chain verification: FALSE\nGenesis Node corrupted, Improper hash on node 0 Does not begin with " + target;
+                }
+            }
+            // Validate all other blocks in the blockchain past the verified prefix.
+            for (int i = full ? 1 : Math.max(1, seen + 1); i < blocks.size(); i++) {
+                // Check the block and its link to the previous block.
+                String failure = checkBlock(i, full);
+                if (failure != null) {
+                    // Every block before this one is valid.
+                    verifiedUpTo.compareAndSet(seen, i - 1);
+                    return failure;
+                }
+            }
+            // Check the chain hash now that every block is valid.
+            return finishVerification(seen);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    /**
+     * Validates the integrity of the whole blockchain on all cores.
+     * Each block is checked against its predecessor only, so the block list is split
+     * into ranges checked in parallel. The result is exactly the one of the sequential
+     * full audit: the lowest failing block is reported with the same message.
+     * @return A string indicating whether the blockchain is valid.
+     */
+    public String isChainValidParallel() {
+        lock.readLock().lock();
+        try {
+            // The genesis-only chain has nothing to split.
+            if (blocks.size() == 1) {
+                return isChainValid(true);
+            }
+            // Verified prefix this verification starts from, and moves on from.
+            int seen = verifiedUpTo.get();
+            // Every block's stored hash is checked too, the genesis block's first.
+            if (!blocks.get(0).hashMatchesContents()) {
+                verifiedUpTo.compareAndSet(seen, -1);
+                return storedHashFailure(0);
+            }
+            // Find the lowest failing block over all ranges.
+            int failed = ForkJoinPool.commonPool().invoke(new VerifyRange(1, blocks.size()));
+            if (failed >= 0) {
+                // Every block before the failing one is valid.
+                verifiedUpTo.compareAndSet(seen, failed - 1);
+                // Describe the failure just like the sequential check would.
+                return checkBlock(failed, true);
+            }
+            // Check the chain hash now that every block is valid.
+            return finishVerification(seen);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    /**
+     * Checks a single block against its predecessor.
+     * @param i The index of the block, at least 1.
+     * @param full True to also hash the block again and compare with its stored hash.
+     * @return The failure message, or null if the block is valid.
+     */
+    private String checkBlock(int i, boolean full) {
+        // Retrieve the current block and its previous block.
+        Block currentBlock = blocks.get(i);
+        Block previousBlock = blocks.get(i - 1);
+        // In an audit, check that the stored hash is really the hash of the block.
+        if (full && !currentBlock.hashMatchesContents()) {
+            return storedHashFailure(i);
+        }
+        // Check if the current block's previous hash matches the hash of the previous block.
+        if (!currentBlock.linksTo(previousBlock)) {
+            // The link between the current block and its predecessor is invalid.
+            return "Chain verification: FALSE\nImproper previousHash on node " + i + " Does not match with previous node hash";
+        }
+        // Check if the hash of the current block starts with the target string based on its difficulty.
+        if (!currentBlock.meetsTarget()) {
+            // The current block's hash does not meet the required difficulty.
+            return "Chain verification: FALSE\nNode corrupted, Improper hash on node " + i + " Does not begin with: " + getTargetString(currentBlock);
+        }
+        // The block is valid.
+        return null;
+    }
+    /**
+     * Describes a block whose stored hash is not the hash of its contents.
+     * @param i The index of the block.
+     * @return The failure message.
+     */
+    private static String storedHashFailure(int i) {
+        return "Chain verification: FALSE\nStored hash on node " + i + " Does not match the contents of the node";
+    }
+    /**
+     * Completes a verification in which every block was found valid.
+     * @param seen The verified prefix the verification started from.
+     * @return A string indicating whether the blockchain is valid.
+     */
+    private String finishVerification(int seen) {
+        // Every block is valid; a concurrent verification that moved the prefix first saw the same chain.
+        verifiedUpTo.compareAndSet(seen, blocks.size() - 1);
+        // Finally, check if the stored chain hash matches the hash of the last block.
+        if (!chainHash.equals(getLatestBlock().calculateHash())) {
+            // The stored chain hash is incorrect.
+            return "Chain verification: FALSE\nImproper chainHash stored in BlockChain: " + chainHash;
+        }
+        // The blockchain is valid.
+        return "Chain verification: TRUE";
+    }
+    /**
+     * Attempts to repair the blockchain by re-computing hashes starting from the first corrupted block.
+     *
+     * The runtime complexity of this method depends on the number
+     * of blocks in the blockchain and the difficulty level of the
+     * proof-of-work algorithm. As the difficulty level increases,
+     * the time taken to repair increases. With difficulty level above 5
+     * we observed an overall increase in the time required by
+     * the system to find the "true hash" via nonce. 10 seconds
+     *  for difficulty 6 amd 7, if difficult yis 8 and above the
+     *  system takes minutes to complete this operation.Blocks after the
+     * corrupted block needs to be rehashed and proof of work re-computed
+     * resulting in longer execution times for this method. Additionally,
+     * the number of corrupted blocks in the blockchain does not affect the
+     * overall execution time, as once a corrupted block is found, all the
+     * blocks after it in the chain needs to re-compute proof-of-work.
+     * The repaired blocks are mined as copies without holding the chain's lock and swapped in
+     * under a short write lock, so the chain stays readable during the proof of work. Must run
+     * on the thread making every other change to the chain, without holding the lock. The
+     * repaired blocks are only logged by the next persistChanges(), which
+     * MiningService.runSerialized() calls once the repair is done.
+     */
+    public void repairChain() {
+        while (true) {
+            // Find the first corrupted block and copy it and every block after it, under the read lock.
+            List<Block> repaired = new ArrayList<>();
+            int first = -1;
+            int size;
+            long changes;
+            lock.readLock().lock();
+            try {
+                size = blocks.size();
+                changes = changeCount;
+                for (int i = 0; i < size; i++) {
+                    // Check if the block is corrupted (its hash does not start with the target string).
+                    if (first < 0 && !blocks.get(i).meetsTarget()) {
+                        first = i;
+                    }
+                    // Every block from the corrupted one on is mined again, on a copy.
+                    if (first >= 0) {
+                        repaired.add(blocks.get(i).copy());
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            // Redo the proof of work on the copies without holding the lock, so readers go on meanwhile.
+            for (int k = 0; k < repaired.size(); k++) {
+                Block currentBlock = repaired.get(k);
+                // Link every block after the corrupted one to the hash of its repaired predecessor.
+                if (k > 0) {
+                    currentBlock.setPreviousHash(repaired.get(k - 1).calculateHash());
+                }
+                mine(currentBlock);
+            }
+            // Swap the repaired blocks in under a short write lock.
+            lock.writeLock().lock();
+            try {
+                // Start over if the chain changed while the copies were mined.
+                if (changes != changeCount || size != blocks.size()) {
+                    continue;
+                }
+                for (Block blk : repaired) {
+                    int i = blk.getIndex();
+                    blocks.set(i, blk);
+                    blk.attachTo(this, i);
+                    index.changed(i, blk);
+                    // Remember to log the repaired block.
+                    if (log != null) {
+                        dirtyBlocks.add(i);
+                    }
+                }
+                if (first >= 0) {
+                    changeCount++;
+                    verifiedUpTo.accumulateAndGet(first - 1, Math::min);
+                }
+                // Update the chain hash to the hash of the latest block after repair.
+                chainHash = this.getLatestBlock().calculateHash();
+                return;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+    /**
+     * Converts the current state of the blockchain into a human-readable string format.
+     * @return A string representation of the blockchain.
+     */
+    public String toString() {
+        lock.readLock().lock();
+        try {
+            // Create a new Display object to format the blockchain data.
+            Display display = new Display();
+            // Set the current chain hash in the display object.
+            display.setChainHash(this.getChainHash());
+            // Set the current list of blocks in the display object.
+            display.setDsChain(blocks.asList());
+            // Convert the display object to a formatted JSON string.
+            return PRETTY_JSON.toJson(display);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    /**
+     * Builds a target string of zeroes for mining based on difficulty level.
+     * @param blk The block for which to build the target string.
+     * @return A string consisting of '0' repeated 'difficulty' times.
+     */
+    private static String getTargetString(Block blk) {
+        // Create a new StringBuilder for building the target string.
+        StringBuilder targetBuild = new StringBuilder();
+        // Get the difficulty level of the block.
+        int diff = blk.getDifficulty();
+        // Append '0' to the target string 'difficulty' times.
+        while(diff != 0) {
+            targetBuild.append("0");
+            diff--;
+        }
+        // Return the completed target string.
+        return targetBuild.toString();
+    }
+    /**
+     * Parallel check of a range of blocks, split in halves until small enough.
+     * Runs while the chain's lock is held by isChainValidParallel().
+     */
+    class VerifyRange extends RecursiveTask<Integer> {
+        // Tasks are never serialized, but ForkJoinTask is Serializable.
+        private static final long serialVersionUID = 1L;
+        // Number of blocks checked directly instead of splitting further.
+        private static final int THRESHOLD = 1024;
+        // First block of the range.
+        private final int from;
+        // Block after the last one of the range.
+        private final int to;
+        /**
+         * Constructs the check of a range of blocks.
+         * @param from The first block of the range.
+         * @param to The block after the last one of the range.
+         */
+        VerifyRange(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+        /**
+         * Checks the range.
+         * @return The lowest failing index in the range, or -1 if every block is valid.
+         */
+        @Override
+        protected Integer compute() {
+            // Check small ranges in order, stopping at the first failure.
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    if (checkBlock(i, true) != null) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+            // Check both halves in parallel and keep the lowest failure.
+            int mid = (from + to) >>> 1;
+            VerifyRange right = new VerifyRange(mid, to);
+            right.fork();
+            int left = new VerifyRange(from, mid).compute();
+            int rightFailed = right.join();
+            return left >= 0 ? left : rightFailed;
+        }
+    }
+    /**
+     * The Display inner class for formatting the blockchain information.
+     */
+    class Display {
+        // List holding all the blocks for display.
+        private List<Block> ds_chain;
+        // String representing the hash of the entire displayed chain.
+        private String chainHash;
+        /**
+         * Sets the current chain hash for display.
+         * @param chainHash The hash of the current chain.
+         */
+        public void setChainHash(String chainHash) {
+            // Set the chain hash for the display.
+            this.chainHash = chainHash;
+        }
+        /**
+         * Sets the list of blocks for display.
+         * @param ds_chain The list of blocks to display.
+         */
+        public void setDsChain(List<Block> ds_chain) {
+            // Set the list of blocks for the display.
+            this.ds_chain = ds_chain;
+        }
+        /**
+         * Retrieves the current chain hash for display.
+         * @return The hash of the displayed chain.
+         */
+        public String getChainHash() {
+            // Return the chain hash for the display.
+            return chainHash;
+        }
+        /**
+         * Retrieves the list of displayed blocks.
+         * @return The list of blocks in the display.
+         */
+        public List<Block> getDs_chain() {
+            // Return the list of displayed blocks.
+            return ds_chain;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Compact binary encoding of a block, used to store blocks on disk.
+ * All numbers are big-endian, strings are an int length followed by UTF-8 bytes
+ * and a missing value is written as length -1.
+ * A block is written from its raw fields, so storing or loading one makes no hex text,
+ * Timestamp or BigInteger: [int index][long epoch millis][int difficulty][long nonce,
+ * -1 until mined][byte length of the previous hash, 0 for the genesis block and -1 if unset]
+ * [previous hash bytes][int count][count x transaction]. Blocks logged in the older layout,
+ * with the nanoseconds, a BigInteger nonce and a hex previous hash, are read by decodeV1.
+ */
+// Imports for necessary libraries and classes
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+class BlockCodec {
+    /**
+     * Writes a block.
+     * @param blk The block to write.
+     * @param out The stream to write it to.
+     * @throws IOException If the stream cannot be written.
+     */
+    static void encode(Block blk, DataOutputStream out) throws IOException {
+        out.writeInt(blk.getIndex());
+        out.writeLong(blk.timestampMillis());
+        out.writeInt(blk.getDifficulty());
+        out.writeLong(blk.nonceValue());
+        // The previous hash is 32 raw bytes, none for the genesis block.
+        byte[] previousHash = blk.previousHashBytes();
+        out.writeByte(previousHash == null ? -1 : previousHash.length);
+        if (previousHash != null) {
+            out.write(previousHash);
+        }
+        List<String> transactions = blk.getData();
+        out.writeInt(transactions.size());
+        for (String tx : transactions) {
+            writeString(out, tx);
+        }
+    }
+    /**
+     * Reads a block.
+     * @param in The buffer to read it from, positioned at the start of the block.
+     * @return The block read.
+     */
+    static Block decode(ByteBuffer in) {
+        int index = in.getInt();
+        long timestamp = in.getLong();
+        int difficulty = in.getInt();
+        long nonce = in.getLong();
+        byte[] previousHash = null;
+        int length = in.get();
+        if (length >= 0) {
+            previousHash = new byte[length];
+            in.get(previousHash);
+        }
+        int count = readCount(in, 4);
+        List<String> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(readString(in));
+        }
+        // Rebuild the block from its raw fields, leaving the hash to be computed when needed.
+        return Block.fromRaw(index, timestamp, transactions, previousHash, nonce, difficulty, null);
+    }
+    /**
+     * Reads a block in the older layout, as logged before blocks were written from their raw fields.
+     * @param in The buffer to read it from, positioned at the start of the block.
+     * @return The block read.
+     */
+    static Block decodeV1(ByteBuffer in) {
+        int index = in.getInt();
+        Timestamp timestamp = new Timestamp(in.getLong());
+        timestamp.setNanos(in.getInt());
+        int difficulty = in.getInt();
+        byte[] nonce = readBytes(in);
+        String previousHash = readString(in);
+        int count = readCount(in, 4);
+        List<String> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(readString(in));
+        }
+        // Rebuild the block as it was when it was written.
+        Block blk = new Block(index, timestamp, transactions, difficulty);
+        blk.setPreviousHash(previousHash);
+        if (nonce != null) {
+            blk.setNonce(new BigInteger(nonce));
+        }
+        return blk;
+    }
+    /**
+     * Writes a string as its length followed by its UTF-8 bytes.
+     * @param out The stream to write to.
+     * @param value The string, or null.
+     * @throws IOException If the stream cannot be written.
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+    /**
+     * Reads a string written by writeString.
+     * @param in The buffer to read from.
+     * @return The string, or null.
+     */
+    static String readString(ByteBuffer in) {
+        byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+    /**
+     * Writes a byte array as its length followed by its bytes.
+     * @param out The stream to write to.
+     * @param value The bytes, or null.
+     * @throws IOException If the stream cannot be written.
+     */
+    static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(value.length);
+        out.write(value);
+    }
+    /**
+     * Reads a byte array written by writeBytes.
+     * @param in The buffer to read from.
+     * @return The bytes, or null.
+     */
+    static byte[] readBytes(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        // Never allocate more than the buffer could still hold.
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] value = new byte[length];
+        in.get(value);
+        return value;
+    }
+    /**
+     * Reads the number of items of a list, checking that the rest of the buffer can hold that
+     * many before anything is allocated for them.
+     * @param in The buffer to read from.
+     * @param minBytes The fewest bytes one item of the list takes.
+     * @return The number of items, or -1 for a missing list.
+     * @throws BufferUnderflowException If the buffer ends before that many items could.
+     * @throws IllegalArgumentException If the count is below -1.
+     */
+    static int readCount(ByteBuffer in, int minBytes) {
+        int count = in.getInt();
+        if (count < -1) {
+            throw new IllegalArgumentException("List of " + count + " items");
+        }
+        if (count > in.remaining() / minBytes) {
+            throw new BufferUnderflowException();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,408 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Durable append-only log of the changes made to a blockchain.
+ * The log is split into segment files of bounded size in one directory. Every record is
+ * [int length][int CRC-32][byte type][payload], where the CRC covers the type and payload.
+ * The type also tells the layout of the payload: blocks are written in the current BlockCodec
+ * layout and chain hashes as raw bytes, while records of the first layout, with blocks in
+ * the older encoding and chain hashes as hex text, are still replayed from existing logs.
+ * Appends go through a FileChannel and are made durable with group commit: a writer
+ * waiting for its record forces the channel once for every record written so far, and
+ * writers that arrive while a force is running share the next one.
+ * On startup the segments are memory-mapped a window at a time and replayed, checking each record's CRC
+ * instead of re-mining the blocks. A crash can only tear the end of the last segment,
+ * since a full segment is forced to disk before the next one is started: a bad record there
+ * that runs to the end of the segment, or is followed by nothing but zeros, is cut off.
+ * A bad record anywhere else means the log itself is damaged, and startup fails instead of
+ * throwing away every block logged after it.
+ */
+// Imports for necessary libraries and classes
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+class BlockLog {
+    /**
+     * Receives the records of the log while it is replayed.
+     */
+    interface Replay {
+        /**
+         * Called for a block appended to the chain.
+         * @param blk The appended block.
+         */
+        void append(Block blk);
+        /**
+         * Called for a block of the chain that was changed in place.
+         * @param blk The block as it was after the change.
+         */
+        void replace(Block blk);
+        /**
+         * Called when the chain hash was set without appending a block.
+         * @param chainHash The new chain hash.
+         */
+        void chainHash(String chainHash);
+    }
+    /**
+     * A position in the log, just after a record.
+     */
+    static class Position {
+        // Number of the segment.
+        final long segment;
+        // Offset in the segment.
+        final long offset;
+        // Sequence number of the record before the position.
+        final long seq;
+        /**
+         * Constructs a log position.
+         * @param segment The number of the segment.
+         * @param offset The offset in the segment.
+         * @param seq The sequence number of the record before the position.
+         */
+        Position(long segment, long offset, long seq) {
+            this.segment = segment;
+            this.offset = offset;
+            this.seq = seq;
+        }
+    }
+    // Record types of the first layout, only replayed.
+    private static final byte APPEND_V1 = 1;
+    private static final byte REPLACE_V1 = 2;
+    private static final byte CHAIN_HASH_V1 = 3;
+    // Record type of an appended block.
+    private static final byte APPEND = 4;
+    // Record type of a block changed in place.
+    private static final byte REPLACE = 5;
+    // Record type of a chain hash update, with the hash as raw bytes.
+    private static final byte CHAIN_HASH = 6;
+    // Size of the length, CRC and type in front of every payload.
+    private static final int HEADER_SIZE = 9;
+    // Directory holding the segments.
+    private final Path dir;
+    // Size after which a new segment is started.
+    private final long segmentSize;
+    // Number of the segment being appended to.
+    private long segmentNumber;
+    // Channel of the segment being appended to.
+    private FileChannel channel;
+    // Sequence number of the last record written.
+    private long written;
+    // Lock serializing the forces of the log to disk.
+    private final Object syncLock = new Object();
+    // Sequence number of the last record known to be on disk, guarded by syncLock.
+    private long durable;
+    /**
+     * Opens the log in the given directory, creating the directory if needed.
+     * Call replay before appending, so a torn tail is cut off first.
+     * @param dir The directory holding the segments.
+     * @param segmentSize The size after which a new segment is started.
+     * @throws IOException If the directory cannot be created.
+     */
+    public BlockLog(Path dir, long segmentSize) throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(dir);
+    }
+    /**
+     * Replays every valid record of the log, truncating a torn tail, and opens
+     * the last segment for appending.
+     * @param replay The receiver of the records.
+     * @throws IOException If a segment cannot be read or truncated.
+     */
+    public void replay(Replay replay) throws IOException {
+        replay(replay, new Position(0, 0, 0));
+    }
+    /**
+     * Replays the valid records of the log from a position on, truncating a torn tail,
+     * and opens the last segment for appending.
+     * @param replay The receiver of the records.
+     * @param from The position to start from, such as the one a snapshot was taken at.
+     * @throws IOException If a segment cannot be read or truncated.
+     */
+    public synchronized void replay(Replay replay, Position from) throws IOException {
+        List<Path> segments = listSegments();
+        for (int s = 0; s < segments.size(); s++) {
+            Path segment = segments.get(s);
+            // Skip everything before the starting position.
+            if (segmentNumber(segment) < from.segment) {
+                continue;
+            }
+            long validEnd = replaySegment(segment, segmentNumber(segment) == from.segment ? from.offset : 0, replay);
+            if (validEnd < Files.size(segment)) {
+                // Only the end of the last segment can be torn by a crash.
+                if (s != segments.size() - 1 || !isTornTail(segment, validEnd)) {
+                    throw new IOException("Damaged record in " + segment + " at offset " + validEnd
+                            + " with more of the log after it, refusing to drop the rest of the log");
+                }
+                // Cut the torn tail off.
+                try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                    ch.truncate(validEnd);
+                    ch.force(true);
+                }
+            }
+        }
+        // Keep appending to the last segment, or start the first one.
+        segmentNumber = segments.isEmpty() ? 0 : segmentNumber(segments.get(segments.size() - 1));
+        openSegment();
+    }
+    /**
+     * Appends a block added to the chain.
+     * @param blk The appended block.
+     * @return The sequence number of the record, to wait on with awaitDurable.
+     */
+    public long append(Block blk) {
+        return write(APPEND, encode(blk));
+    }
+    /**
+     * Records a block of the chain changed in place.
+     * @param blk The block after the change.
+     * @return The sequence number of the record, to wait on with awaitDurable.
+     */
+    public long replace(Block blk) {
+        return write(REPLACE, encode(blk));
+    }
+    /**
+     * Records a new chain hash.
+     * @param chainHash The new chain hash.
+     * @return The sequence number of the record, to wait on with awaitDurable.
+     */
+    public long recordChainHash(String chainHash) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            BlockCodec.writeBytes(new DataOutputStream(bytes), chainHash == null ? null : Block.hexToBytes(chainHash));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return write(CHAIN_HASH, bytes.toByteArray());
+    }
+    /**
+     * Retrieves the position just after the last record written.
+     * @return The current end of the log.
+     */
+    public synchronized Position position() {
+        try {
+            return new Position(segmentNumber, channel.position(), written);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    /**
+     * Waits until a record, and every record before it, is on disk.
+     * @param seq The sequence number of the record.
+     */
+    public void awaitDurable(long seq) {
+        synchronized (syncLock) {
+            // A force started by another writer may already have covered the record.
+            if (durable >= seq) {
+                return;
+            }
+            // Force everything written so far in one go.
+            FileChannel ch;
+            long target;
+            synchronized (this) {
+                ch = channel;
+                target = written;
+            }
+            try {
+                ch.force(false);
+            } catch (ClosedChannelException e) {
+                // The segment was rolled over, which forced it before closing.
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            durable = target;
+        }
+    }
+    /**
+     * Closes the log after forcing it to disk.
+     * @throws IOException If the log cannot be forced or closed.
+     */
+    public synchronized void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+    /**
+     * Writes one record to the current segment, rolling over to a new segment first when it is full.
+     * @param type The record type.
+     * @param payload The record payload.
+     * @return The sequence number of the record.
+     */
+    private synchronized long write(byte type, byte[] payload) {
+        // The CRC covers the type and the payload.
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(type).put(payload).flip();
+        try {
+            if (channel.position() > 0 && channel.position() + record.remaining() > segmentSize) {
+                // Make the full segment durable before moving on.
+                channel.force(false);
+                channel.close();
+                segmentNumber++;
+                openSegment();
+            }
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return ++written;
+    }
+    /**
+     * Replays the valid records of one segment.
+     * @param segment The segment file.
+     * @param offset The offset of the first record to replay.
+     * @param replay The receiver of the records.
+     * @return The offset just after the last valid record.
+     * @throws IOException If the segment cannot be read.
+     */
+    private long replaySegment(Path segment, long offset, Replay replay) throws IOException {
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.READ)) {
+            // Segments may be larger than a single map can hold.
+            ChannelWindow in = new ChannelWindow(ch, ch.size(), ChannelWindow.DEFAULT_WINDOW);
+            in.position(Math.min(offset, ch.size()));
+            ByteBuffer buf;
+            while ((buf = in.ensure(HEADER_SIZE)) != null) {
+                long start = in.position();
+                int length = buf.getInt(buf.position());
+                // A record running past the end of the segment was cut short.
+                if (length < 0 || (buf = in.ensure(HEADER_SIZE + (long) length)) == null) {
+                    return start;
+                }
+                int crcValue = buf.getInt(buf.position() + 4);
+                byte type = buf.get(buf.position() + 8);
+                ByteBuffer payload = buf.slice(buf.position() + HEADER_SIZE, length);
+                CRC32 crc = new CRC32();
+                crc.update(type);
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != crcValue) {
+                    return start;
+                }
+                buf.position(buf.position() + HEADER_SIZE + length);
+                switch (type) {
+                    case APPEND:
+                        replay.append(BlockCodec.decode(payload));
+                        break;
+                    case REPLACE:
+                        replay.replace(BlockCodec.decode(payload));
+                        break;
+                    case CHAIN_HASH:
+                        byte[] chainHash = BlockCodec.readBytes(payload);
+                        replay.chainHash(chainHash == null ? null : Block.bytesToHex(chainHash));
+                        break;
+                    case APPEND_V1:
+                        replay.append(BlockCodec.decodeV1(payload));
+                        break;
+                    case REPLACE_V1:
+                        replay.replace(BlockCodec.decodeV1(payload));
+                        break;
+                    case CHAIN_HASH_V1:
+                        replay.chainHash(BlockCodec.readString(payload));
+                        break;
+                    default:
+                        // An unknown type can only come from a damaged record.
+                        return start;
+                }
+            }
+            return in.position();
+        }
+    }
+    /**
+     * Checks whether the bytes of a segment from a bad record on can only be a write cut short
+     * by a crash: a header or record running past the end of the segment, a record ending
+     * exactly at the end of the segment, or nothing but zeros.
+     * @param segment The segment file.
+     * @param start The offset of the bad record.
+     * @return True if the bad record is a torn tail.
+     * @throws IOException If the segment cannot be read.
+     */
+    private static boolean isTornTail(Path segment, long start) throws IOException {
+        ByteBuffer tail;
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size - start < HEADER_SIZE) {
+                return true;
+            }
+            ByteBuffer header = ByteBuffer.allocate(4);
+            ch.read(header, start);
+            long end = start + HEADER_SIZE + header.getInt(0);
+            if (header.getInt(0) >= 0 && end >= size) {
+                return true;
+            }
+            // Anything longer than a segment cannot be a tail of zeros the file system left.
+            if (size - start > Integer.MAX_VALUE) {
+                return false;
+            }
+            tail = ByteBuffer.allocate((int) (size - start));
+            while (tail.hasRemaining() && ch.read(tail, start + tail.position()) >= 0) {
+                // Read the rest of the segment.
+            }
+        }
+        tail.flip();
+        while (tail.hasRemaining()) {
+            if (tail.get() != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    /**
+     * Encodes a block into a record payload.
+     * @param blk The block to encode.
+     * @return The encoded block.
+     */
+    private static byte[] encode(Block blk) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            BlockCodec.encode(blk, new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return bytes.toByteArray();
+    }
+    /**
+     * Opens the current segment for appending.
+     * @throws IOException If the segment cannot be opened.
+     */
+    private void openSegment() throws IOException {
+        channel = FileChannel.open(dir.resolve(String.format("segment-%010d.log", segmentNumber)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+    }
+    /**
+     * Lists the segment files in order.
+     * @return The segment files, oldest first.
+     * @throws IOException If the directory cannot be listed.
+     */
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(p -> p.getFileName().toString().matches("segment-\\d{10}\\.log"))
+                    .sorted()
+                    .forEach(segments::add);
+        }
+        return segments;
+    }
+    /**
+     * Extracts the number of a segment from its file name.
+     * @param segment The segment file.
+     * @return The segment number.
+     */
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring("segment-".length(), name.length() - ".log".length()));
+    }
+}
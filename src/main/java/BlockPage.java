@@ -0,0 +1,162 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * A range of blocks sent as part of a response, for viewing the chain one page at a time.
+ * On the server a page only knows its chain and its range; Gson writes it with a JsonWriter
+ * straight into the connection's writer, fetching a few blocks at a time under the chain's
+ * read lock, so neither the whole chain nor the whole page is turned into one String first.
+ * Blocks are written as JSON objects inside the response, not as escaped JSON text.
+ * On the client the blocks are read back as JSON trees, ready to be printed.
+ * The binary protocol writes the same blocks through writeBlocks() with WireCodec.
+ */
+// Imports for necessary libraries and classes
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@JsonAdapter(BlockPage.Adapter.class)
+class BlockPage {
+    // Number of blocks fetched from the chain under one acquisition of its read lock.
+    private static final int FETCH_SIZE = 64;
+    // Chain the blocks come from, on the server; null on the client.
+    private final BlockChain chain;
+    // Index of the first block of the page.
+    private final int from;
+    // Index after the last block of the page.
+    private final int to;
+    // Blocks read back from a response, on the client; null on the server.
+    private final List<JsonElement> received;
+    /**
+     * Constructs the page of blocks a response will send.
+     * @param chain The chain the blocks come from.
+     * @param from The index of the first block of the page.
+     * @param to The index after the last block of the page.
+     */
+    public BlockPage(BlockChain chain, int from, int to) {
+        this.chain = chain;
+        this.from = from;
+        this.to = to;
+        this.received = null;
+    }
+    /**
+     * Constructs a page read back from a response.
+     * @param received The blocks of the page, as JSON trees.
+     */
+    private BlockPage(List<JsonElement> received) {
+        this.chain = null;
+        this.from = 0;
+        this.to = received.size();
+        this.received = received;
+    }
+    /**
+     * Counts the blocks of the page.
+     * @return The number of blocks.
+     */
+    public int size() {
+        return to - from;
+    }
+    /**
+     * Gets the blocks of a page read back from a response.
+     * @return The blocks, as JSON trees, or an empty list for a page still on the server.
+     */
+    public List<JsonElement> getBlocks() {
+        return received == null ? Collections.emptyList() : received;
+    }
+    /**
+     * Receives the blocks of a page one at a time.
+     */
+    interface BlockWriter {
+        /**
+         * Writes one block.
+         * @param blk The block.
+         * @throws IOException If the connection fails.
+         */
+        void write(Block blk) throws IOException;
+    }
+    /**
+     * Hands the blocks of a page on the server to a writer, in order. The read lock is only
+     * held while a few blocks are copied out, not while they are written to the socket.
+     * @param writer The writer of the blocks.
+     * @throws IOException If the connection fails.
+     */
+    void writeBlocks(BlockWriter writer) throws IOException {
+        for (int i = from; i < to; i += FETCH_SIZE) {
+            for (Block blk : chain.getBlocks(i, Math.min(to, i + FETCH_SIZE))) {
+                writer.write(blk);
+            }
+        }
+    }
+    /**
+     * Constructs a page read back from a response.
+     * @param received The blocks of the page, as JSON trees.
+     * @return The page.
+     */
+    static BlockPage received(List<JsonElement> received) {
+        return new BlockPage(received);
+    }
+    /**
+     * Checks whether a page was read back from a response rather than made on the server.
+     * @return True for a page read back from a response.
+     */
+    boolean isReceived() {
+        return received != null;
+    }
+    /**
+     * Writes a page as a JSON array of blocks and reads one back.
+     */
+    static class Adapter extends TypeAdapter<BlockPage> {
+        /**
+         * Writes the blocks of a page one after another.
+         * @param out The writer of the response.
+         * @param page The page to write.
+         * @throws IOException If the connection fails.
+         */
+        @Override
+        public void write(JsonWriter out, BlockPage page) throws IOException {
+            if (page == null) {
+                out.nullValue();
+                return;
+            }
+            TypeAdapter<Block> blockAdapter = Block.JSON.getAdapter(Block.class);
+            out.beginArray();
+            if (page.received != null) {
+                // A page read back from a response is written as it was read.
+                for (JsonElement blk : page.received) {
+                    Block.JSON.toJson(blk, out);
+                }
+            } else {
+                page.writeBlocks(blk -> blockAdapter.write(out, blk));
+            }
+            out.endArray();
+        }
+        /**
+         * Reads the blocks of a page as JSON trees.
+         * @param in The reader of the response.
+         * @return The page read.
+         * @throws IOException If the response is malformed.
+         */
+        @Override
+        public BlockPage read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            List<JsonElement> blocks = new ArrayList<>();
+            in.beginArray();
+            while (in.hasNext()) {
+                blocks.add(JsonParser.parseReader(in));
+            }
+            in.endArray();
+            return new BlockPage(blocks);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Storage backend for the blocks of a chain.
+ * HeapBlockStore keeps Block objects in a list, as the chain always did. OffHeapBlockStore
+ * keeps them encoded in off-heap pages and hands out a freshly decoded view on every get,
+ * which the chain writes back through writeBack whenever the view is changed.
+ * Stores are not thread safe for writes, the owning BlockChain guards them with its lock;
+ * concurrent gets are fine.
+ */
+// Imports for necessary libraries and classes
+import java.util.AbstractList;
+import java.util.List;
+
+interface BlockStore {
+    /**
+     * Counts the blocks in the store.
+     * @return The number of blocks.
+     */
+    int size();
+    /**
+     * Retrieves a block.
+     * @param i The position of the block.
+     * @return The block, or a view of it that is only stored again through writeBack.
+     */
+    Block get(int i);
+    /**
+     * Appends a block.
+     * @param blk The block to append.
+     */
+    void add(Block blk);
+    /**
+     * Replaces a block.
+     * @param i The position of the block.
+     * @param blk The new block.
+     */
+    void set(int i, Block blk);
+    /**
+     * Stores a block obtained from get again after it was changed.
+     * @param i The position the block was read from.
+     * @param blk The changed block.
+     */
+    void writeBack(int i, Block blk);
+    /**
+     * Retrieves the difficulty of a block without building the whole block.
+     * @param i The position of the block.
+     * @return The difficulty of the block.
+     */
+    int getDifficulty(int i);
+    /**
+     * Takes a read-only view of the blocks stored so far, to read while the store keeps growing.
+     * The view shares the store's memory and ends at the current size, so blocks appended
+     * later never show up in it. A block changed in place does show through, so a reader of
+     * the view has to notice such changes itself.
+     * @return A read-only view of the current blocks.
+     */
+    BlockStore view();
+    /**
+     * Removes every block.
+     */
+    void clear();
+    /**
+     * Describes where the blocks are kept and how much memory they take.
+     * @return A one-line description of the store.
+     */
+    String describe();
+    /**
+     * Presents the store as a read-only list, for instance to serialize it.
+     * @return A list view of the blocks.
+     */
+    default List<Block> asList() {
+        return new AbstractList<Block>() {
+            @Override
+            public Block get(int i) {
+                return BlockStore.this.get(i);
+            }
+            @Override
+            public int size() {
+                return BlockStore.this.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Lookup indexes over the blocks of a chain: a hash map from block hash to block index,
+ * and a sorted set of (timestamp, index) pairs for time range queries.
+ * The indexes are kept up to date as the chain changes: the chain indexes every block it
+ * appends, and re-indexes a block changed in place (by corruptChain or repairChain) under
+ * its new hash and timestamp right away, so a lookup never has to catch up first. A lookup
+ * by hash costs O(1) and a time range O(log n + k) for k matching blocks.
+ * Hashes are keyed by their last 8 bytes as a long rather than by hex strings, so the index
+ * takes a few words per block even when the blocks themselves live off the heap. The leading
+ * bytes are not used since proof of work makes them zero. Two blocks may share a key, so
+ * a key maps to every block under it and a lookup confirms the full hash against the store.
+ * Not thread safe for writes, the owning BlockChain changes it under its write lock.
+ */
+// Imports for necessary libraries and classes
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+class ChainIndex {
+    /**
+     * Entry of the timestamp index, ordered by time and then by block index.
+     */
+    private static class Stamp implements Comparable<Stamp> {
+        // Time the block was created, in epoch milliseconds.
+        final long time;
+        // Index of the block.
+        final int index;
+        /**
+         * Constructs a timestamp index entry.
+         * @param time The time the block was created, in epoch milliseconds.
+         * @param index The index of the block.
+         */
+        Stamp(long time, int index) {
+            this.time = time;
+            this.index = index;
+        }
+        /**
+         * Orders entries by time, then by block index.
+         * @param other The entry to compare with.
+         * @return A negative number, zero or a positive number as this entry sorts first, equal or last.
+         */
+        @Override
+        public int compareTo(Stamp other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Integer.compare(index, other.index);
+        }
+    }
+    // Indexes of the blocks by the key of their hash; nearly always a single block.
+    private final HashMap<Long, int[]> byHash = new HashMap<>();
+    // Key each block is indexed under, by block index.
+    private long[] keyOf = new long[16];
+    // Timestamp each block is indexed under, by block index.
+    private long[] timeOf = new long[16];
+    // Number of blocks indexed.
+    private int size;
+    // Blocks ordered by timestamp.
+    private final TreeSet<Stamp> byTime = new TreeSet<>();
+    /**
+     * Indexes a block appended to the chain.
+     * @param i The index of the block, the number of blocks indexed so far.
+     * @param blk The block.
+     */
+    public void add(int i, Block blk) {
+        if (i != size) {
+            throw new IllegalArgumentException("Block " + i + " appended after " + size + " indexed blocks");
+        }
+        if (size == keyOf.length) {
+            keyOf = Arrays.copyOf(keyOf, size * 2);
+            timeOf = Arrays.copyOf(timeOf, size * 2);
+        }
+        size++;
+        index(i, blk);
+    }
+    /**
+     * Indexes a block again after it was changed in place.
+     * @param i The index of the block.
+     * @param blk The block with its new contents.
+     */
+    public void changed(int i, Block blk) {
+        if (i < 0 || i >= size) {
+            return;
+        }
+        // Drop the old entries of the block before indexing the new ones.
+        unlink(keyOf[i], i);
+        byTime.remove(new Stamp(timeOf[i], i));
+        index(i, blk);
+    }
+    /**
+     * Drops every entry, for a chain that is rebuilt from scratch.
+     */
+    public void clear() {
+        byHash.clear();
+        byTime.clear();
+        keyOf = new long[16];
+        timeOf = new long[16];
+        size = 0;
+    }
+    /**
+     * Finds a block by its hash.
+     * @param blocks The blocks of the chain, to confirm the full hash.
+     * @param hash The hex encoded hash of the block, in either case.
+     * @return The index of the block, or -1 if no block has that hash.
+     */
+    public int findByHash(BlockStore blocks, String hash) {
+        byte[] raw = parseHash(hash);
+        if (raw == null) {
+            return -1;
+        }
+        int[] candidates = byHash.get(key(raw));
+        if (candidates == null) {
+            return -1;
+        }
+        for (int i : candidates) {
+            if (Arrays.equals(blocks.get(i).hashBytes(), raw)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    /**
+     * Finds the blocks created within a time window.
+     * @param from The start of the window in epoch milliseconds, inclusive.
+     * @param to The end of the window in epoch milliseconds, inclusive.
+     * @return The indexes of the blocks, ordered by timestamp.
+     */
+    public List<Integer> findByTimeRange(long from, long to) {
+        List<Integer> found = new ArrayList<>();
+        if (from > to) {
+            return found;
+        }
+        for (Stamp stamp : byTime.subSet(new Stamp(from, Integer.MIN_VALUE), true, new Stamp(to, Integer.MAX_VALUE), true)) {
+            found.add(stamp.index);
+        }
+        return found;
+    }
+    /**
+     * Indexes one block under its current hash and timestamp.
+     * @param i The index of the block.
+     * @param blk The block.
+     */
+    private void index(int i, Block blk) {
+        long key = key(blk.hashBytes());
+        int[] found = byHash.get(key);
+        if (found == null) {
+            byHash.put(key, new int[] {i});
+        } else {
+            // Another block shares the key, keep both.
+            int[] both = Arrays.copyOf(found, found.length + 1);
+            both[found.length] = i;
+            byHash.put(key, both);
+        }
+        keyOf[i] = key;
+        timeOf[i] = blk.timestampMillis();
+        byTime.add(new Stamp(timeOf[i], i));
+    }
+    /**
+     * Removes one block from the blocks under a key.
+     * @param key The key the block is indexed under.
+     * @param i The index of the block.
+     */
+    private void unlink(long key, int i) {
+        int[] found = byHash.get(key);
+        if (found == null) {
+            return;
+        }
+        int[] rest = new int[found.length];
+        int kept = 0;
+        for (int j : found) {
+            if (j != i) {
+                rest[kept++] = j;
+            }
+        }
+        if (kept == 0) {
+            byHash.remove(key);
+        } else if (kept < found.length) {
+            byHash.put(key, Arrays.copyOf(rest, kept));
+        }
+    }
+    /**
+     * Takes the key of a raw hash: its last 8 bytes.
+     * @param hash The 32 byte hash.
+     * @return The key.
+     */
+    private static long key(byte[] hash) {
+        long key = 0;
+        for (int b = hash.length - 8; b < hash.length; b++) {
+            key = (key << 8) | (hash[b] & 0xFF);
+        }
+        return key;
+    }
+    /**
+     * Decodes a hex encoded hash given in a lookup.
+     * @param hash The hex encoded hash, in either case.
+     * @return The 32 byte hash, or null if the text is not one.
+     */
+    private static byte[] parseHash(String hash) {
+        if (hash == null || hash.length() != 64) {
+            return null;
+        }
+        byte[] raw = new byte[32];
+        for (int b = 0; b < 32; b++) {
+            int high = Character.digit(hash.charAt(2 * b), 16);
+            int low = Character.digit(hash.charAt(2 * b + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            raw[b] = (byte) (high << 4 | low);
+        }
+        return raw;
+    }
+}
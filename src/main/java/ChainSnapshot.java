@@ -0,0 +1,148 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Compact binary checkpoint of a whole blockchain, used for a fast cold start.
+ * A snapshot holds every block in the BlockCodec encoding together with its cached hash,
+ * the chain hash, the difficulty statistics and the position of the durable log it was
+ * taken at, so on startup only the log records after that position are replayed.
+ * The file is [int magic][int version][long segment][long offset][chain hash][int count]
+ * [count x (block, 32 byte hash)][stats][int CRC-32 of everything before it]. Hashes are
+ * stored as their raw bytes, the chain hash with a length so an empty chain's empty hash
+ * fits, and are taken back as they are, without any hex text. It is written to a
+ * temporary file, forced to disk and only then moved over the previous snapshot in one step,
+ * so a crash mid-write leaves the old snapshot in place. It is loaded through read-only
+ * memory-mapped windows, so it may grow past the 2 GB a single map can hold, and nothing
+ * in it is re-hashed or re-mined.
+ */
+// Imports for necessary libraries and classes
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+class ChainSnapshot {
+    // Marks a file as a chain snapshot ("BCSN").
+    private static final int MAGIC = 0x4243534E;
+    // Version of the snapshot layout; older snapshots are ignored and the log replayed instead.
+    private static final int VERSION = 4;
+    // Position of the durable log the snapshot was taken at.
+    final BlockLog.Position position;
+    // Hash of the chain.
+    final String chainHash;
+    // Blocks of the chain, by index.
+    final BlockStore blocks;
+    // Difficulty statistics of the blocks.
+    final ChainStats stats;
+    /**
+     * Constructs a snapshot of a chain.
+     * @param position The position of the durable log the snapshot was taken at.
+     * @param chainHash The hash of the chain.
+     * @param blocks The blocks of the chain, or a view of them that only grows while the snapshot is written.
+     * @param stats The difficulty statistics of the blocks.
+     */
+    ChainSnapshot(BlockLog.Position position, String chainHash, BlockStore blocks, ChainStats stats) {
+        this.position = position;
+        this.chainHash = chainHash;
+        this.blocks = blocks;
+        this.stats = stats;
+    }
+    /**
+     * Writes the snapshot to a temporary file next to the snapshot file and forces it to disk.
+     * @param file The snapshot file.
+     * @return The temporary file, to install with install or delete.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    Path write(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (CheckedOutputStream checked = new CheckedOutputStream(Files.newOutputStream(tmp), crc);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checked, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(position.segment);
+            out.writeLong(position.offset);
+            BlockCodec.writeBytes(out, chainHash == null ? null : Block.hexToBytes(chainHash));
+            out.writeInt(blocks.size());
+            for (int i = 0; i < blocks.size(); i++) {
+                Block blk = blocks.get(i);
+                BlockCodec.encode(blk, out);
+                out.write(blk.hashBytes());
+            }
+            stats.encode(out);
+            // The trailer covers everything written before it.
+            out.flush();
+            out.writeInt((int) crc.getValue());
+        }
+        // Make the new snapshot durable before it can replace the old one.
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+        return tmp;
+    }
+    /**
+     * Replaces the snapshot file with a snapshot written by write, in one step.
+     * @param tmp The temporary file returned by write.
+     * @param file The snapshot file.
+     * @throws IOException If the file cannot be moved.
+     */
+    static void install(Path tmp, Path file) throws IOException {
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    /**
+     * Loads a snapshot, adding its blocks to a store.
+     * @param file The snapshot file.
+     * @param into The empty store to add the blocks to.
+     * @return The snapshot, or null if there is none or it is damaged.
+     * @throws IOException If the file cannot be read.
+     */
+    static ChainSnapshot read(Path file, BlockStore into) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            // Too short to hold the header and trailer.
+            if (size < 28) {
+                return null;
+            }
+            // Check the trailer before trusting anything in the file.
+            ByteBuffer trailer = ByteBuffer.allocate(4);
+            ch.read(trailer, size - 4);
+            if ((int) ChannelWindow.crc(ch, size - 4) != trailer.getInt(0)) {
+                return null;
+            }
+            ChannelWindow in = new ChannelWindow(ch, size - 4, ChannelWindow.DEFAULT_WINDOW);
+            ByteBuffer header = in.ensure(24);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                return null;
+            }
+            BlockLog.Position position = new BlockLog.Position(header.getLong(), header.getLong(), 0);
+            byte[] chainHash = in.read(BlockCodec::readBytes);
+            int count = in.read(ByteBuffer::getInt);
+            for (int i = 0; i < count; i++) {
+                into.add(in.read(buf -> {
+                    Block blk = BlockCodec.decode(buf);
+                    // Take the stored hash instead of hashing the block again.
+                    byte[] hash = new byte[32];
+                    buf.get(hash);
+                    blk.restoreHash(hash);
+                    return blk;
+                }));
+            }
+            return new ChainSnapshot(position, chainHash == null ? null : Block.bytesToHex(chainHash), into,
+                    in.read(ChainStats::decode));
+        } catch (BufferUnderflowException e) {
+            // A layout that cannot be read back is treated as damaged.
+            return null;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Running difficulty statistics of a blockchain.
+ * Cumulative difficulty is kept as a prefix array, so the total difficulty of the whole chain
+ * or of any block range is answered in O(1). Expected hashes grow as 16^difficulty, so a
+ * running total of them would swallow every later small block after one hard block; instead
+ * the indexes of the blocks of each difficulty are kept in order, and the expected hashes of
+ * a range are summed exactly from the number of blocks of each difficulty in it, found by
+ * binary search in O(D log n) for D distinct difficulties. The counts of those index lists
+ * double as a histogram giving the minimum and maximum without scanning the chain.
+ * Appending a block costs O(1); changing the difficulty of an existing block rebuilds the
+ * prefixes after it. The arrays can be copied and stored as they are; the index lists are
+ * rebuilt from the difficulties when a snapshot is read, in one pass over an int array.
+ * Not thread safe, the owning BlockChain guards it with its lock.
+ */
+// Imports for necessary libraries and classes
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+class ChainStats {
+    // Difficulty of every block, by index.
+    private int[] difficulties = new int[16];
+    // cumDifficulty[i] is the total difficulty of blocks 0 to i - 1.
+    private long[] cumDifficulty = new long[17];
+    // blocksOf[d] holds the indexes of the blocks with difficulty d in increasing order,
+    // in its first histogram[d] entries.
+    private int[][] blocksOf = new int[8][];
+    // histogram[d] is the number of blocks with difficulty d.
+    private int[] histogram = new int[8];
+    // Number of blocks counted.
+    private int size;
+    /**
+     * Counts a block appended to the chain.
+     * @param difficulty The difficulty of the new block.
+     */
+    public void append(int difficulty) {
+        // Grow the arrays when they are full.
+        if (size == difficulties.length) {
+            difficulties = Arrays.copyOf(difficulties, size * 2);
+            cumDifficulty = Arrays.copyOf(cumDifficulty, size * 2 + 1);
+        }
+        difficulties[size] = difficulty;
+        cumDifficulty[size + 1] = cumDifficulty[size] + difficulty;
+        // The new block has the highest index, so it goes at the end of its list.
+        insertBlock(difficulty, size);
+        size++;
+    }
+    /**
+     * Records a change of difficulty of a block already counted.
+     * @param i The index of the block.
+     * @param difficulty The new difficulty of the block.
+     */
+    public void update(int i, int difficulty) {
+        // Nothing to do unless the difficulty really changed.
+        if (i < 0 || i >= size || difficulties[i] == difficulty) {
+            return;
+        }
+        removeBlock(difficulties[i], i);
+        insertBlock(difficulty, i);
+        difficulties[i] = difficulty;
+        // Rebuild the prefixes from the changed block on.
+        for (int j = i; j < size; j++) {
+            cumDifficulty[j + 1] = cumDifficulty[j] + difficulties[j];
+        }
+    }
+    /**
+     * Computes the total difficulty of a range of blocks.
+     * @param from The first block of the range.
+     * @param to The last block of the range, inclusive.
+     * @return The total difficulty of the range.
+     */
+    public long getDifficulty(int from, int to) {
+        return cumDifficulty[to + 1] - cumDifficulty[from];
+    }
+    /**
+     * Computes the total expected hashes of a range of blocks, exactly, from the number of
+     * blocks of each difficulty in the range.
+     * @param from The first block of the range.
+     * @param to The last block of the range, inclusive.
+     * @return The total expected hashes of the range, rounded once to a double.
+     */
+    public double getExpectedHashes(int from, int to) {
+        BigInteger total = BigInteger.ZERO;
+        for (int d = 0; d < histogram.length; d++) {
+            if (histogram[d] == 0) {
+                continue;
+            }
+            // Blocks of difficulty d with an index from "from" to "to".
+            long count = lowerBound(d, to + 1) - lowerBound(d, from);
+            if (count > 0) {
+                // 16^d expected hashes per block.
+                total = total.add(BigInteger.valueOf(count).shiftLeft(4 * d));
+            }
+        }
+        return total.doubleValue();
+    }
+    /**
+     * Finds the lowest difficulty of any block.
+     * @return The lowest difficulty, or 0 for an empty chain.
+     */
+    public int getMinDifficulty() {
+        for (int d = 0; d < histogram.length; d++) {
+            if (histogram[d] > 0) {
+                return d;
+            }
+        }
+        return 0;
+    }
+    /**
+     * Finds the highest difficulty of any block.
+     * @return The highest difficulty, or 0 for an empty chain.
+     */
+    public int getMaxDifficulty() {
+        for (int d = histogram.length - 1; d >= 0; d--) {
+            if (histogram[d] > 0) {
+                return d;
+            }
+        }
+        return 0;
+    }
+    /**
+     * Describes how many blocks there are of each difficulty.
+     * @return The histogram as "difficulty: count" pairs.
+     */
+    public String describeHistogram() {
+        StringBuilder desc = new StringBuilder();
+        for (int d = 0; d < histogram.length; d++) {
+            if (histogram[d] > 0) {
+                desc.append(desc.length() == 0 ? "" : ", ").append(d).append(": ").append(histogram[d]);
+            }
+        }
+        return desc.toString();
+    }
+    /**
+     * Copies the statistics.
+     * @return An independent copy of the statistics.
+     */
+    public ChainStats copy() {
+        ChainStats copy = new ChainStats();
+        copy.difficulties = Arrays.copyOf(difficulties, Math.max(16, size));
+        copy.cumDifficulty = Arrays.copyOf(cumDifficulty, Math.max(16, size) + 1);
+        copy.blocksOf = new int[blocksOf.length][];
+        for (int d = 0; d < blocksOf.length; d++) {
+            copy.blocksOf[d] = blocksOf[d] == null ? null : Arrays.copyOf(blocksOf[d], Math.max(16, histogram[d]));
+        }
+        copy.histogram = histogram.clone();
+        copy.size = size;
+        return copy;
+    }
+    /**
+     * Writes the statistics, the prefix array included.
+     * @param out The stream to write to.
+     * @throws IOException If the stream cannot be written.
+     */
+    public void encode(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeInt(difficulties[i]);
+        }
+        for (int i = 0; i <= size; i++) {
+            out.writeLong(cumDifficulty[i]);
+        }
+    }
+    /**
+     * Reads statistics written by encode.
+     * @param in The buffer to read from.
+     * @return The statistics read.
+     */
+    public static ChainStats decode(ByteBuffer in) {
+        ChainStats stats = new ChainStats();
+        int size = in.getInt();
+        // Leave room to append without growing straight away.
+        int capacity = Math.max(16, size);
+        stats.difficulties = new int[capacity];
+        stats.cumDifficulty = new long[capacity + 1];
+        for (int i = 0; i < size; i++) {
+            stats.difficulties[i] = in.getInt();
+            // Blocks come in index order, so each goes at the end of its list.
+            stats.insertBlock(stats.difficulties[i], i);
+        }
+        for (int i = 0; i <= size; i++) {
+            stats.cumDifficulty[i] = in.getLong();
+        }
+        stats.size = size;
+        return stats;
+    }
+    /**
+     * Adds a block to the list of its difficulty, keeping the list in index order,
+     * and counts it in the histogram. Both grow as needed.
+     * @param difficulty The difficulty of the block; negative difficulties are counted as 0.
+     * @param i The index of the block.
+     */
+    private void insertBlock(int difficulty, int i) {
+        int d = Math.max(0, difficulty);
+        if (d >= histogram.length) {
+            histogram = Arrays.copyOf(histogram, d + 1);
+            blocksOf = Arrays.copyOf(blocksOf, d + 1);
+        }
+        if (blocksOf[d] == null) {
+            blocksOf[d] = new int[16];
+        } else if (histogram[d] == blocksOf[d].length) {
+            blocksOf[d] = Arrays.copyOf(blocksOf[d], histogram[d] * 2);
+        }
+        // Appends land at the end; only a change of difficulty shifts the list.
+        int at = lowerBound(d, i);
+        System.arraycopy(blocksOf[d], at, blocksOf[d], at + 1, histogram[d] - at);
+        blocksOf[d][at] = i;
+        histogram[d]++;
+    }
+    /**
+     * Removes a block from the list of its difficulty and from the histogram.
+     * @param difficulty The difficulty of the block.
+     * @param i The index of the block.
+     */
+    private void removeBlock(int difficulty, int i) {
+        int d = Math.max(0, difficulty);
+        int at = lowerBound(d, i);
+        System.arraycopy(blocksOf[d], at + 1, blocksOf[d], at, histogram[d] - at - 1);
+        histogram[d]--;
+    }
+    /**
+     * Finds how many blocks of a difficulty have an index below the given one.
+     * @param d The difficulty, at least 0.
+     * @param i The index.
+     * @return The number of blocks of difficulty d with a lower index.
+     */
+    private int lowerBound(int d, int i) {
+        // The common append case: every block of the list comes before i.
+        int count = histogram[d];
+        if (count == 0 || blocksOf[d][count - 1] < i) {
+            return count;
+        }
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (blocksOf[d][mid] < i) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Read-only memory-mapped window sliding over a file of any size.
+ * A single map is limited to 2 GB, which a snapshot or a log segment of tens of millions
+ * of blocks outgrows, so files are mapped a window at a time and records are decoded
+ * straight from the mapped bytes as before. When a record runs past the end of the window,
+ * the window is mapped again starting at that record, large enough to hold it.
+ */
+// Imports for necessary libraries and classes
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+class ChannelWindow {
+    // Bytes mapped at a time unless a record needs more.
+    static final int DEFAULT_WINDOW = 64 << 20;
+    // Largest window a single map can hold.
+    private static final long MAX_WINDOW = Integer.MAX_VALUE - 8;
+    // Channel of the file, open for reading.
+    private final FileChannel channel;
+    // Size of the file.
+    private final long size;
+    // Bytes mapped at a time.
+    private final int window;
+    // Offset in the file of the first byte of the window.
+    private long base;
+    // The mapped window.
+    private MappedByteBuffer buf;
+    /**
+     * Maps the first window of a file, up to the given end.
+     * @param channel The channel of the file, open for reading; it may be closed once reading is done.
+     * @param size The size of the file, or the end of the part to read.
+     * @param window The number of bytes to map at a time.
+     * @throws IOException If the file cannot be mapped.
+     */
+    ChannelWindow(FileChannel channel, long size, int window) throws IOException {
+        this.channel = channel;
+        this.size = size;
+        this.window = window;
+        map(0, window);
+    }
+    /**
+     * Gets the offset in the file of the next byte to read.
+     * @return The offset.
+     */
+    long position() {
+        return base + buf.position();
+    }
+    /**
+     * Moves to an offset in the file.
+     * @param offset The offset, at most the size of the file.
+     * @throws IOException If the file cannot be mapped.
+     */
+    void position(long offset) throws IOException {
+        if (offset >= base && offset <= base + buf.limit()) {
+            buf.position((int) (offset - base));
+        } else {
+            map(offset, window);
+        }
+    }
+    /**
+     * Counts the bytes left in the file.
+     * @return The number of bytes from the current offset to the end of the file.
+     */
+    long remaining() {
+        return size - position();
+    }
+    /**
+     * Makes sure the next bytes are in the window, mapping it again from the current offset if needed.
+     * @param bytes The number of bytes needed.
+     * @return The window, positioned at the current offset, or null if the file ends first.
+     * @throws IOException If the file cannot be mapped.
+     */
+    ByteBuffer ensure(long bytes) throws IOException {
+        if (bytes > remaining() || bytes > MAX_WINDOW) {
+            return null;
+        }
+        if (bytes > buf.remaining()) {
+            map(position(), Math.max(window, bytes));
+        }
+        return buf;
+    }
+    /**
+     * Decodes a record whose length is only known once it is decoded. If the record runs
+     * past the end of the window, the window is mapped again from the start of the record,
+     * twice as large each time, and the record decoded again.
+     * @param decoder The decoder of the record, reading from the window's current position.
+     * @return The record decoded.
+     * @throws BufferUnderflowException If the record runs past the end of the file.
+     * @throws IOException If the file cannot be mapped.
+     */
+    <T> T read(Function<ByteBuffer, T> decoder) throws IOException {
+        long start = position();
+        long mapped = Math.max(window, buf.limit());
+        while (true) {
+            try {
+                return decoder.apply(buf);
+            } catch (BufferUnderflowException e) {
+                // The record really is cut short if the window already reaches the end of the file.
+                if (base + buf.limit() >= size || mapped >= MAX_WINDOW) {
+                    throw e;
+                }
+                mapped = Math.min(MAX_WINDOW, mapped * 2);
+                map(start, mapped);
+            }
+        }
+    }
+    /**
+     * Computes the CRC-32 of a part of a file, reading it through the channel.
+     * @param channel The channel of the file, open for reading.
+     * @param end The offset after the last byte to include, counting from the start of the file.
+     * @return The CRC-32 of the bytes.
+     * @throws IOException If the file cannot be read.
+     */
+    static long crc(FileChannel channel, long end) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer chunk = ByteBuffer.allocateDirect(1 << 20);
+        long at = 0;
+        while (at < end) {
+            chunk.clear().limit((int) Math.min(chunk.capacity(), end - at));
+            int read = channel.read(chunk, at);
+            if (read < 0) {
+                throw new IOException("File ended at " + at + " of " + end + " bytes");
+            }
+            at += read;
+            chunk.flip();
+            crc.update(chunk);
+        }
+        return crc.getValue();
+    }
+    /**
+     * Maps a window of the file.
+     * @param offset The offset of the first byte of the window.
+     * @param length The number of bytes to map, cut at the end of the file.
+     * @throws IOException If the file cannot be mapped.
+     */
+    private void map(long offset, long length) throws IOException {
+        buf = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(Math.min(length, MAX_WINDOW), size - offset));
+        base = offset;
+    }
+}
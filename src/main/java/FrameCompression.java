@@ -0,0 +1,201 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Compresses the payload of length-prefixed frames for one connection, once the client asked
+ * for it with a setCompression request. Bulk responses like a page of getFullView are mostly
+ * repeated field names, hex hashes and timestamps and shrink several times over.
+ * A compressed frame has the top bit of its length prefix set; the payload is then a zlib
+ * (deflate) or gzip stream of the UTF-8 JSON. Either side can read both kinds of frame, so a
+ * connection may mix them: payloads below the threshold, or that would not get smaller, are
+ * sent as they are. The compressor keeps one Deflater for the life of the connection.
+ * Every connection adds to shared counters of bytes in and out and of the CPU time spent,
+ * for tuning the threshold.
+ */
+// Imports for necessary libraries and classes
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+class FrameCompression {
+    // Bit of the length prefix marking a compressed payload.
+    static final int COMPRESSED = 0x80000000;
+    // Default size in bytes below which payloads are sent as they are.
+    static final int DEFAULT_THRESHOLD = 1024;
+    // Fixed header of a gzip stream: magic, deflate method, no flags, no time, no extra flags, unknown OS.
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    // Clock for the CPU time spent compressing, if the runtime measures it per thread.
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    // Counters over all connections.
+    private static final LongAdder compressedFrames = new LongAdder();
+    private static final LongAdder skippedFrames = new LongAdder();
+    private static final LongAdder bytesIn = new LongAdder();
+    private static final LongAdder bytesOut = new LongAdder();
+    private static final LongAdder cpuNanos = new LongAdder();
+    // True for gzip, false for zlib-wrapped deflate.
+    private final boolean gzip;
+    // Smallest payload to compress.
+    private final int threshold;
+    // Deflater reused for every frame of the connection.
+    private final Deflater deflater;
+    // Checksum of the payload, for the gzip trailer.
+    private final CRC32 crc = new CRC32();
+    // Buffer the compressed payload is built in, grown as needed.
+    private byte[] out = new byte[8192];
+    /**
+     * Constructs the compressor of a connection.
+     * @param gzip True for gzip, false for zlib-wrapped deflate.
+     * @param threshold The smallest payload to compress, in bytes.
+     */
+    private FrameCompression(boolean gzip, int threshold) {
+        this.gzip = gzip;
+        this.threshold = threshold;
+        // Gzip writes its own header and trailer around raw deflate data.
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, gzip);
+    }
+    /**
+     * Parses the settings of a setCompression request.
+     * @param algorithm "deflate", "gzip", or "none" to turn compression off.
+     * @param threshold The smallest payload to compress in bytes, or null for the default.
+     * @return The compressor, or null to send every payload as it is.
+     * @throws IllegalArgumentException If the algorithm is unknown or the threshold is not a number.
+     */
+    static FrameCompression parse(String algorithm, String threshold) {
+        int min = threshold == null ? DEFAULT_THRESHOLD : Integer.parseInt(threshold.trim());
+        if (min < 0) {
+            throw new IllegalArgumentException("Negative threshold " + min);
+        }
+        if ("none".equals(algorithm)) {
+            return null;
+        }
+        if (!"deflate".equals(algorithm) && !"gzip".equals(algorithm)) {
+            throw new IllegalArgumentException("Unknown compression " + algorithm);
+        }
+        return new FrameCompression("gzip".equals(algorithm), min);
+    }
+    /**
+     * Describes the settings of a compressor.
+     * @param compression The compressor, or null if compression is off.
+     * @return A short description of the settings.
+     */
+    static String describe(FrameCompression compression) {
+        return compression == null ? "Compression off"
+                : "Compressing payloads of at least " + compression.threshold + " bytes with "
+                + (compression.gzip ? "gzip" : "deflate");
+    }
+    /**
+     * Compresses a payload, unless it is too small or would not get smaller.
+     * Called by whichever thread sends a frame of the connection.
+     * @param data The buffer holding the payload.
+     * @param off The offset of the payload.
+     * @param len The length of the payload.
+     * @return The compressed payload, exactly sized, or null to send the payload as it is.
+     */
+    synchronized byte[] compress(byte[] data, int off, int len) {
+        if (len < threshold) {
+            skippedFrames.increment();
+            return null;
+        }
+        long start = cpuTime();
+        int size = 0;
+        if (gzip) {
+            System.arraycopy(GZIP_HEADER, 0, out, 0, GZIP_HEADER.length);
+            size = GZIP_HEADER.length;
+            crc.reset();
+            crc.update(data, off, len);
+        }
+        deflater.reset();
+        deflater.setInput(data, off, len);
+        deflater.finish();
+        while (!deflater.finished()) {
+            // Stop early once the result cannot be smaller than the payload.
+            if (size >= len) {
+                break;
+            }
+            if (size == out.length) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            size += deflater.deflate(out, size, out.length - size);
+        }
+        byte[] packed = null;
+        if (deflater.finished() && size + (gzip ? 8 : 0) < len) {
+            packed = Arrays.copyOf(out, size + (gzip ? 8 : 0));
+            if (gzip) {
+                // Trailer: checksum and length of the payload, little-endian.
+                writeIntLE(packed, size, (int) crc.getValue());
+                writeIntLE(packed, size + 4, len);
+            }
+        }
+        // Do not hold on to the buffer of an unusually large payload.
+        if (out.length > (1 << 20)) {
+            out = new byte[8192];
+        }
+        cpuNanos.add(cpuTime() - start);
+        if (packed == null) {
+            skippedFrames.increment();
+            return null;
+        }
+        compressedFrames.increment();
+        bytesIn.add(len);
+        bytesOut.add(packed.length);
+        return packed;
+    }
+    /**
+     * Restores a compressed payload, telling gzip from deflate by the gzip magic number.
+     * @param data The buffer holding the compressed payload.
+     * @param off The offset of the compressed payload.
+     * @param len The length of the compressed payload.
+     * @param maxSize The largest payload to accept once restored.
+     * @return The restored payload.
+     * @throws IOException If the payload is corrupt or restores to more than maxSize bytes.
+     */
+    static byte[] decompress(byte[] data, int off, int len, int maxSize) throws IOException {
+        boolean gzipped = len >= 2 && data[off] == 0x1f && data[off + 1] == (byte) 0x8b;
+        InputStream raw = new ByteArrayInputStream(data, off, len);
+        try (InputStream in = gzipped ? new GZIPInputStream(raw) : new InflaterInputStream(raw)) {
+            // Read one byte past the limit to tell a payload of exactly maxSize bytes from a larger one.
+            byte[] payload = in.readNBytes((int) Math.min(Integer.MAX_VALUE - 8L, maxSize + 1L));
+            if (payload.length > maxSize) {
+                throw new IOException("Compressed frame restores to more than " + maxSize + " bytes");
+            }
+            return payload;
+        }
+    }
+    /**
+     * Describes how much compression saved over all connections and what it cost.
+     * @return A one-line description of the counters.
+     */
+    static String describeTotals() {
+        long in = bytesIn.sum();
+        long out = bytesOut.sum();
+        return String.format("%,d frames compressed, %,d sent as they were, %,d bytes to %,d (%.2fx), %.1f ms CPU (%.1f ns per byte)",
+                compressedFrames.sum(), skippedFrames.sum(), in, out, out == 0 ? 0.0 : (double) in / out,
+                cpuNanos.sum() / 1e6, in == 0 ? 0.0 : (double) cpuNanos.sum() / in);
+    }
+    /**
+     * Reads the CPU time of the current thread, or the wall clock where the runtime does not measure it.
+     * @return A time in nanoseconds.
+     */
+    private static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+    /**
+     * Writes an int in little-endian order, as gzip stores its trailer.
+     * @param buf The buffer to write to.
+     * @param at The offset to write at.
+     * @param value The value.
+     */
+    private static void writeIntLE(byte[] buf, int at, int value) {
+        for (int i = 0; i < 4; i++) {
+            buf[at + i] = (byte) (value >>> (8 * i));
+        }
+    }
+}
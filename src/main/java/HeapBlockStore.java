@@ -0,0 +1,101 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Block store keeping every block as a Block object in an ArrayList on the heap.
+ * Gets return the stored block itself, so changes to it need no write back.
+ */
+// Import for the list of blocks.
+import java.util.ArrayList;
+
+class HeapBlockStore implements BlockStore {
+    // ArrayList holding all the blocks.
+    private final ArrayList<Block> blocks;
+    /**
+     * Constructs an empty heap block store.
+     */
+    public HeapBlockStore() {
+        this(new ArrayList<>(0));
+    }
+    /**
+     * Constructs a heap block store around a list of blocks.
+     * @param blocks The list holding the blocks.
+     */
+    private HeapBlockStore(ArrayList<Block> blocks) {
+        this.blocks = blocks;
+    }
+    /**
+     * Counts the blocks in the store.
+     * @return The number of blocks.
+     */
+    @Override
+    public int size() {
+        return blocks.size();
+    }
+    /**
+     * Retrieves a block.
+     * @param i The position of the block.
+     * @return The stored block itself.
+     */
+    @Override
+    public Block get(int i) {
+        return blocks.get(i);
+    }
+    /**
+     * Appends a block.
+     * @param blk The block to append.
+     */
+    @Override
+    public void add(Block blk) {
+        blocks.add(blk);
+    }
+    /**
+     * Replaces a block.
+     * @param i The position of the block.
+     * @param blk The new block.
+     */
+    @Override
+    public void set(int i, Block blk) {
+        blocks.set(i, blk);
+    }
+    /**
+     * Does nothing, the list already holds the changed block itself.
+     * @param i The position the block was read from.
+     * @param blk The changed block.
+     */
+    @Override
+    public void writeBack(int i, Block blk) {
+    }
+    /**
+     * Retrieves the difficulty of a block.
+     * @param i The position of the block.
+     * @return The difficulty of the block.
+     */
+    @Override
+    public int getDifficulty(int i) {
+        return blocks.get(i).getDifficulty();
+    }
+    /**
+     * Copies the list of blocks. The blocks themselves are shared with the view.
+     * @return A store holding the same blocks.
+     */
+    @Override
+    public BlockStore view() {
+        return new HeapBlockStore(new ArrayList<>(blocks));
+    }
+    /**
+     * Removes every block.
+     */
+    @Override
+    public void clear() {
+        blocks.clear();
+    }
+    /**
+     * Describes the store.
+     * @return The number of Block objects on the heap.
+     */
+    @Override
+    public String describe() {
+        return "heap, " + blocks.size() + " Block objects";
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Pool of transactions waiting to be mined.
+ * Clients add transactions from the server thread while the block producer drains
+ * them in arrival order on the mining thread, so the pool is lock-free.
+ * The pool holds at most a set number of transactions and of characters of transactions,
+ * so clients submitting faster than blocks are mined are turned away instead of growing
+ * the heap without bound.
+ */
+// Imports for necessary libraries and classes
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+class Mempool {
+    /**
+     * A transaction waiting in the pool, with the ticket tracking it.
+     */
+    static class PendingTransaction {
+        // The transaction to store in a block.
+        final String transaction;
+        // The difficulty requested for the transaction's block.
+        final int difficulty;
+        // The ticket handed back to the client.
+        final MiningTicket ticket;
+        /**
+         * Constructs a pending transaction.
+         * @param transaction The transaction to store in a block.
+         * @param difficulty The difficulty requested for the transaction's block.
+         * @param ticket The ticket handed back to the client.
+         */
+        PendingTransaction(String transaction, int difficulty, MiningTicket ticket) {
+            this.transaction = transaction;
+            this.difficulty = difficulty;
+            this.ticket = ticket;
+        }
+    }
+    // Transactions waiting to be mined, oldest first.
+    private final ConcurrentLinkedQueue<PendingTransaction> pending = new ConcurrentLinkedQueue<>();
+    // Number of transactions waiting, kept apart since the queue's size() is O(n).
+    private final AtomicInteger size = new AtomicInteger();
+    // Characters of the transactions waiting.
+    private final AtomicLong chars = new AtomicLong();
+    // Most transactions waiting at once.
+    private final int maxSize;
+    // Most characters of transactions waiting at once.
+    private final long maxChars;
+    /**
+     * Constructs an empty pool.
+     * @param maxSize The most transactions waiting at once.
+     * @param maxChars The most characters of transactions waiting at once.
+     */
+    Mempool(int maxSize, long maxChars) {
+        this.maxSize = maxSize;
+        this.maxChars = maxChars;
+    }
+    /**
+     * Adds a transaction to the pool, unless the pool is full.
+     * @param tx The transaction to add.
+     * @return The number of transactions waiting, including this one, or -1 if the pool is full.
+     */
+    public int add(PendingTransaction tx) {
+        // Take the room first, so adds racing each other cannot pass the limits together
+        int length = tx.transaction.length();
+        int waiting = size.incrementAndGet();
+        long waitingChars = chars.addAndGet(length);
+        if (waiting > maxSize || waitingChars > maxChars) {
+            size.decrementAndGet();
+            chars.addAndGet(-length);
+            return -1;
+        }
+        pending.add(tx);
+        return waiting;
+    }
+    /**
+     * Removes up to the given number of the oldest transactions from the pool.
+     * @param max The maximum number of transactions to remove.
+     * @return The removed transactions, oldest first.
+     */
+    public List<PendingTransaction> drain(int max) {
+        List<PendingTransaction> drained = new ArrayList<>();
+        PendingTransaction tx;
+        while (drained.size() < max && (tx = pending.poll()) != null) {
+            size.decrementAndGet();
+            chars.addAndGet(-tx.transaction.length());
+            drained.add(tx);
+        }
+        return drained;
+    }
+    /**
+     * Counts the transactions waiting in the pool.
+     * @return The number of transactions waiting.
+     */
+    public int size() {
+        return size.get();
+    }
+}
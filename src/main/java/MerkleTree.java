@@ -0,0 +1,193 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Merkle tree over the transactions of a block.
+ * Leaves are the SHA-256 of 0x00 followed by the UTF-8 bytes of a transaction, inner nodes
+ * the SHA-256 of 0x01 followed by their two children, so a leaf can never pass for an inner
+ * node. A node without a sibling is promoted to the next level unchanged. The root commits
+ * to every transaction in a fixed 32 bytes, and an inclusion proof for one transaction only
+ * needs the siblings on its path to the root. A proof also carries the header of its block,
+ * so the block hash can be rebuilt from the folded root and compared with a hash the client
+ * already trusts; a root that is not tied to such a hash proves nothing.
+ */
+// Imports for necessary libraries and classes
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+class MerkleTree {
+    /**
+     * One step of an inclusion proof: the sibling hash and on which side it sits.
+     */
+    static class ProofStep {
+        // Hex encoded hash of the sibling node.
+        private final String hash;
+        // True if the sibling is the left child.
+        private final boolean left;
+        /**
+         * Constructs a proof step.
+         * @param hash The hex encoded hash of the sibling node.
+         * @param left True if the sibling is the left child.
+         */
+        ProofStep(String hash, boolean left) {
+            this.hash = hash;
+            this.left = left;
+        }
+    }
+    /**
+     * An inclusion proof of a transaction in a block.
+     */
+    static class Proof {
+        // Index of the block holding the transaction.
+        int blockIndex;
+        // Hash of the block holding the transaction.
+        String blockHash;
+        // Creation time of the block, in the text form hashed into the block.
+        String timestamp;
+        // Hash of the previous block, empty for the genesis block.
+        String previousHash;
+        // Nonce found by the proof of work of the block.
+        long nonce;
+        // Difficulty of the block.
+        int difficulty;
+        // Position of the transaction in the block.
+        int txIndex;
+        // The transaction proven to be in the block.
+        String transaction;
+        // Merkle root of the block.
+        String merkleRoot;
+        // Siblings from the leaf up to the root.
+        List<ProofStep> path;
+    }
+    /**
+     * Computes the Merkle root of a list of transactions.
+     * @param transactions The transactions of a block.
+     * @return The hex encoded Merkle root.
+     */
+    static String root(List<String> transactions) {
+        return Block.bytesToHex(rootBytes(transactions));
+    }
+    /**
+     * Computes the raw Merkle root of a list of transactions.
+     * @param transactions The transactions of a block.
+     * @return The 32 byte Merkle root.
+     */
+    static byte[] rootBytes(List<String> transactions) {
+        // Reduce the leaves level by level until only the root is left.
+        List<byte[]> level = leaves(transactions);
+        while (level.size() > 1) {
+            level = parentLevel(level);
+        }
+        return level.get(0);
+    }
+    /**
+     * Builds the inclusion proof path of one transaction.
+     * @param transactions The transactions of a block.
+     * @param txIndex The position of the transaction to prove.
+     * @return The siblings from the leaf up to the root.
+     */
+    static List<ProofStep> path(List<String> transactions, int txIndex) {
+        List<ProofStep> path = new ArrayList<>();
+        List<byte[]> level = leaves(transactions);
+        int pos = txIndex;
+        while (level.size() > 1) {
+            // Sibling of the node, if it has one on this level.
+            int sibling = pos % 2 == 0 ? pos + 1 : pos - 1;
+            if (sibling < level.size()) {
+                path.add(new ProofStep(Block.bytesToHex(level.get(sibling)), sibling < pos));
+            }
+            level = parentLevel(level);
+            pos /= 2;
+        }
+        return path;
+    }
+    /**
+     * Checks an inclusion proof against the hash of a block the client already trusts.
+     * The path is folded up to a root, the block hash is rebuilt from the header and that
+     * root the way Block hashes itself, and it must meet the block's difficulty and equal
+     * both the proof's block hash and the trusted one.
+     * @param proof The proof to check.
+     * @param trustedBlockHash The hex encoded hash the client trusts for the block, for
+     *                         instance from the ticket of its own transaction.
+     * @return True if the transaction is in the block with the trusted hash.
+     */
+    static boolean verify(Proof proof, String trustedBlockHash) {
+        if (trustedBlockHash == null || !trustedBlockHash.equalsIgnoreCase(proof.blockHash)) {
+            return false;
+        }
+        try {
+            byte[] node = hash((byte) 0, proof.transaction.getBytes(StandardCharsets.UTF_8));
+            for (ProofStep step : proof.path) {
+                byte[] sibling = Block.hexToBytes(step.hash);
+                node = step.left ? hash((byte) 1, sibling, node) : hash((byte) 1, node, sibling);
+            }
+            // Rebuild the hash input of the block around the folded root
+            String header = new StringBuilder().append(proof.blockIndex)
+                    .append(proof.timestamp)
+                    .append(Block.bytesToHex(node))
+                    .append(proof.previousHash)
+                    .append(proof.nonce)
+                    .append(proof.difficulty)
+                    .toString();
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] blockHash = md.digest(header.getBytes());
+            return Block.bytesToHex(blockHash).equalsIgnoreCase(trustedBlockHash)
+                    && MiningKernel.meetsTarget(blockHash, proof.difficulty);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        } catch (RuntimeException e) {
+            // A proof with missing or malformed fields proves nothing
+            return false;
+        }
+    }
+    /**
+     * Hashes every transaction into a leaf.
+     * @param transactions The transactions of a block.
+     * @return The leaf hashes, in transaction order.
+     */
+    private static List<byte[]> leaves(List<String> transactions) {
+        List<byte[]> leaves = new ArrayList<>(transactions.size());
+        for (String tx : transactions) {
+            leaves.add(hash((byte) 0, tx.getBytes(StandardCharsets.UTF_8)));
+        }
+        // An empty block still gets a well defined root.
+        if (leaves.isEmpty()) {
+            leaves.add(hash((byte) 0));
+        }
+        return leaves;
+    }
+    /**
+     * Hashes pairs of nodes into the level above, promoting a node without a sibling.
+     * @param level The nodes of one level.
+     * @return The nodes of the level above.
+     */
+    private static List<byte[]> parentLevel(List<byte[]> level) {
+        List<byte[]> parents = new ArrayList<>((level.size() + 1) / 2);
+        for (int i = 0; i < level.size(); i += 2) {
+            parents.add(i + 1 < level.size() ? hash((byte) 1, level.get(i), level.get(i + 1)) : level.get(i));
+        }
+        return parents;
+    }
+    /**
+     * Computes the SHA-256 of a domain separation tag followed by the given parts.
+     * @param tag 0 for leaves, 1 for inner nodes.
+     * @param parts The bytes to hash after the tag.
+     * @return The digest.
+     */
+    private static byte[] hash(byte tag, byte[]... parts) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        md.update(tag);
+        for (byte[] part : parts) {
+            md.update(part);
+        }
+        return md.digest();
+    }
+}
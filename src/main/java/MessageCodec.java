@@ -0,0 +1,362 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Reads and writes the JSON messages of one client connection, on either side of it.
+ * A codec is made once per socket and owns its buffered streams for the life of the socket,
+ * so bytes read ahead of one message are still there for the next one, and the buffers are
+ * not allocated again for every message. Messages are either newline-terminated lines or,
+ * for the NIO server, frames of a 4-byte big-endian length followed by UTF-8 JSON; frames are
+ * read into and encoded from buffers the codec reuses. Once compression was negotiated, frames
+ * above its threshold are compressed; compressed frames are read whether negotiated or not.
+ * A client opening the connection with WireCodec.MAGIC gets frames holding the binary
+ * encoding of WireCodec instead of JSON; the server side finds out in accept().
+ * All codecs share one Gson instance, which is thread safe.
+ * A codec itself is used by one thread at a time.
+ */
+// Imports for necessary libraries and classes
+import com.google.gson.Gson;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+class MessageCodec {
+    // Gson instance shared by every connection.
+    static final Gson GSON = new Gson();
+    // Size the reused buffers start at, and the size they shrink back to after a large message.
+    private static final int BUFFER_SIZE = 8192;
+    // Buffers grown past this size are dropped after use instead of being kept for the next message.
+    private static final int MAX_KEPT_BUFFER = 1 << 20;
+    /**
+     * Byte array output stream whose buffer can be written out without copying it.
+     */
+    private static class MessageBuffer extends ByteArrayOutputStream {
+        /**
+         * Constructs an empty buffer.
+         */
+        MessageBuffer() {
+            super(BUFFER_SIZE);
+        }
+        /**
+         * Gets the buffer, holding the bytes written in its first size() bytes.
+         * @return The buffer.
+         */
+        byte[] array() {
+            return buf;
+        }
+    }
+    // True to use length-prefixed frames, false for newline-terminated lines.
+    private final boolean framed;
+    // True if the frames hold the binary encoding instead of JSON.
+    private final boolean binary;
+    // Line reader and writer, in line mode.
+    private final BufferedReader lineIn;
+    private final Writer lineOut;
+    // Frame input and output streams, in frame mode.
+    private final DataInputStream frameIn;
+    private final DataOutputStream frameOut;
+    // Buffer the bytes of a received frame are read into.
+    private byte[] received = new byte[BUFFER_SIZE];
+    // Builder a message is serialized into before it is framed.
+    private StringBuilder text = new StringBuilder(BUFFER_SIZE);
+    // Buffer a message is encoded into before it is framed.
+    private ByteBuffer encoded = ByteBuffer.allocate(BUFFER_SIZE);
+    // Buffer a binary message is encoded into, and the stream writing to it.
+    private MessageBuffer binaryBuffer = new MessageBuffer();
+    private DataOutputStream binaryOut = new DataOutputStream(binaryBuffer);
+    // Compressor of outgoing frames, or null to send them as they are.
+    private FrameCompression compression;
+    // Encoder from the message text to UTF-8, replacing malformed characters like String.getBytes.
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+    /**
+     * Constructs the codec of a JSON connection.
+     * @param socket The socket of the connection.
+     * @param framed True to use length-prefixed frames, false for newline-terminated lines.
+     * @throws IOException If the socket's streams cannot be opened.
+     */
+    public MessageCodec(Socket socket, boolean framed) throws IOException {
+        this(socket.getInputStream(), socket.getOutputStream(), framed, false);
+    }
+    /**
+     * Constructs the codec of a connection over its streams.
+     * @param in The input stream of the connection.
+     * @param out The output stream of the connection.
+     * @param framed True to use length-prefixed frames, false for newline-terminated lines.
+     * @param binary True for the binary encoding, which is always framed.
+     */
+    private MessageCodec(InputStream in, OutputStream out, boolean framed, boolean binary) {
+        this.framed = framed || binary;
+        this.binary = binary;
+        if (this.framed) {
+            lineIn = null;
+            lineOut = null;
+            frameIn = new DataInputStream(new BufferedInputStream(in));
+            frameOut = new DataOutputStream(new BufferedOutputStream(out));
+        } else {
+            lineIn = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            lineOut = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            frameIn = null;
+            frameOut = null;
+        }
+    }
+    /**
+     * Opens the client side of a connection, asking for the binary protocol if wanted.
+     * @param socket The socket of the connection.
+     * @param framed True to use length-prefixed frames, false for newline-terminated lines.
+     * @param binary True to ask the server for the binary encoding, which is always framed.
+     * @return The codec of the connection.
+     * @throws IOException If the connection fails or the server does not answer the binary protocol.
+     */
+    static MessageCodec connect(Socket socket, boolean framed, boolean binary) throws IOException {
+        if (!binary) {
+            return new MessageCodec(socket, framed);
+        }
+        MessageCodec codec = new MessageCodec(socket.getInputStream(), socket.getOutputStream(), true, true);
+        codec.frameOut.writeInt(WireCodec.MAGIC);
+        codec.frameOut.flush();
+        if (codec.frameIn.readInt() != WireCodec.MAGIC) {
+            throw new IOException("Server does not speak the binary protocol");
+        }
+        return codec;
+    }
+    /**
+     * Opens the server side of a connection, switching to the binary protocol if the client
+     * starts with WireCodec.MAGIC. Waits for the first byte from the client.
+     * @param socket The socket of the connection.
+     * @param framed True to use length-prefixed frames for JSON, false for newline-terminated lines.
+     * @return The codec of the connection.
+     * @throws IOException If the connection fails or the client sent a malformed greeting.
+     */
+    static MessageCodec accept(Socket socket, boolean framed) throws IOException {
+        // Peek at the first byte; it cannot start a JSON line or the length of a valid frame.
+        BufferedInputStream in = new BufferedInputStream(socket.getInputStream());
+        in.mark(1);
+        int first = in.read();
+        in.reset();
+        if (first != WireCodec.MAGIC >>> 24) {
+            return new MessageCodec(in, socket.getOutputStream(), framed, false);
+        }
+        MessageCodec codec = new MessageCodec(in, socket.getOutputStream(), true, true);
+        if (codec.frameIn.readInt() != WireCodec.MAGIC) {
+            throw new IOException("Unknown protocol");
+        }
+        codec.frameOut.writeInt(WireCodec.MAGIC);
+        codec.frameOut.flush();
+        return codec;
+    }
+    /**
+     * Checks whether the connection carries the binary encoding instead of JSON.
+     * @return True for the binary protocol.
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+    /**
+     * Checks whether the connection uses length-prefixed frames, which compression needs.
+     * @return True in frame mode, false in line mode.
+     */
+    public boolean isFramed() {
+        return framed;
+    }
+    /**
+     * Sets how the frames written from now on are compressed.
+     * @param compression The compressor, or null to send frames as they are.
+     * @throws IllegalStateException If the connection uses lines rather than frames.
+     */
+    public void setCompression(FrameCompression compression) {
+        if (!framed && compression != null) {
+            throw new IllegalStateException("Compression needs length-prefixed frames");
+        }
+        this.compression = compression;
+    }
+    /**
+     * Reads the JSON text of the next message.
+     * @return The text of the message.
+     * @throws EOFException If the other side closed the connection.
+     * @throws IOException If the connection fails or a compressed frame is corrupt.
+     * @throws IllegalStateException If the connection uses the binary protocol.
+     */
+    public String readText() throws IOException {
+        if (binary) {
+            throw new IllegalStateException("Binary connections carry messages, not text");
+        }
+        if (!framed) {
+            String line = lineIn.readLine();
+            if (line == null) {
+                throw new EOFException("Connection closed by peer");
+            }
+            return line;
+        }
+        ByteBuffer frame = readFrame();
+        return new String(frame.array(), frame.position(), frame.remaining(), StandardCharsets.UTF_8);
+    }
+    /**
+     * Reads the next message.
+     * @param type The class of the message: RequestMessage or ResponseMessage on a binary connection.
+     * @return The message.
+     * @throws EOFException If the other side closed the connection.
+     * @throws IOException If the connection fails or a compressed frame is corrupt.
+     */
+    public <T> T read(Class<T> type) throws IOException {
+        if (!binary) {
+            return GSON.fromJson(readText(), type);
+        }
+        ByteBuffer frame = readFrame();
+        if (type == RequestMessage.class) {
+            return type.cast(WireCodec.decodeRequest(frame));
+        }
+        if (type == ResponseMessage.class) {
+            return type.cast(WireCodec.decodeResponse(frame));
+        }
+        throw new IllegalArgumentException("No binary encoding for " + type);
+    }
+    /**
+     * Reads the payload of the next frame, restoring it if it was compressed.
+     * @return The payload, in a buffer that is only valid until the next read.
+     * @throws EOFException If the other side closed the connection.
+     * @throws IOException If the connection fails, or a frame is corrupt or larger than
+     *                     NioServer.MAX_FRAME, compressed or restored.
+     */
+    private ByteBuffer readFrame() throws IOException {
+        int length = frameIn.readInt();
+        // The top bit of the length marks a compressed payload.
+        boolean compressed = (length & FrameCompression.COMPRESSED) != 0;
+        length &= ~FrameCompression.COMPRESSED;
+        // Refuse a frame larger than any the server accepts before allocating for it.
+        if (length > NioServer.MAX_FRAME) {
+            throw new IOException("Frame of " + length + " bytes");
+        }
+        // Keep a larger buffer for later frames, unless this frame is unusually large.
+        byte[] buffer = received;
+        if (length > buffer.length) {
+            buffer = new byte[length];
+            if (length <= MAX_KEPT_BUFFER) {
+                received = buffer;
+            }
+        }
+        frameIn.readFully(buffer, 0, length);
+        if (compressed) {
+            return ByteBuffer.wrap(FrameCompression.decompress(buffer, 0, length, NioServer.MAX_FRAME));
+        }
+        return ByteBuffer.wrap(buffer, 0, length);
+    }
+    /**
+     * Writes a message given as JSON text.
+     * @param json The text of the message, without line breaks.
+     * @throws IOException If the connection fails.
+     * @throws IllegalStateException If the connection uses the binary protocol.
+     */
+    public void writeText(CharSequence json) throws IOException {
+        if (binary) {
+            throw new IllegalStateException("Binary connections carry messages, not text");
+        }
+        if (framed) {
+            writeFrame(json);
+        } else {
+            lineOut.append(json).append('\n');
+            lineOut.flush();
+        }
+    }
+    /**
+     * Writes a message.
+     * @param message The message.
+     * @throws IOException If the connection fails.
+     */
+    public void write(Object message) throws IOException {
+        if (binary) {
+            writeBinary(message);
+        } else if (framed) {
+            text.setLength(0);
+            GSON.toJson(message, text);
+            writeFrame(text);
+            // Do not hold on to the builder of an unusually large message.
+            if (text.capacity() > MAX_KEPT_BUFFER) {
+                text = new StringBuilder(BUFFER_SIZE);
+            }
+        } else {
+            // Serialize straight into the buffered writer; Gson escapes line breaks inside strings.
+            GSON.toJson(message, lineOut);
+            lineOut.write('\n');
+            lineOut.flush();
+        }
+    }
+    /**
+     * Encodes a message into the reused buffer in the binary encoding and writes it as a frame.
+     * @param msg The message, a RequestMessage or a ResponseMessage.
+     * @throws IOException If the connection fails.
+     */
+    private void writeBinary(Object msg) throws IOException {
+        binaryBuffer.reset();
+        if (msg instanceof RequestMessage) {
+            WireCodec.encode((RequestMessage) msg, binaryOut);
+        } else if (msg instanceof ResponseMessage) {
+            WireCodec.encode((ResponseMessage) msg, binaryOut);
+        } else {
+            throw new IllegalArgumentException("No binary encoding for " + msg.getClass());
+        }
+        binaryOut.flush();
+        writeFrame(binaryBuffer.array(), binaryBuffer.size());
+        // Do not hold on to the buffer of an unusually large message.
+        if (binaryBuffer.array().length > MAX_KEPT_BUFFER) {
+            binaryBuffer = new MessageBuffer();
+            binaryOut = new DataOutputStream(binaryBuffer);
+        }
+    }
+    /**
+     * Encodes text into the reused buffer and writes it as a frame.
+     * @param json The text of the message.
+     * @throws IOException If the connection fails.
+     */
+    private void writeFrame(CharSequence json) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(json);
+        encoder.reset();
+        encoded.clear();
+        // Grow the buffer until the whole message fits.
+        while (encoder.encode(chars, encoded, true).isOverflow()) {
+            encoded = ByteBuffer.allocate(encoded.capacity() * 2).put(encoded.flip());
+        }
+        while (encoder.flush(encoded).isOverflow()) {
+            encoded = ByteBuffer.allocate(encoded.capacity() * 2).put(encoded.flip());
+        }
+        writeFrame(encoded.array(), encoded.position());
+        // Do not hold on to the buffer of an unusually large message.
+        if (encoded.capacity() > MAX_KEPT_BUFFER) {
+            encoded = ByteBuffer.allocate(BUFFER_SIZE);
+        }
+    }
+    /**
+     * Writes a payload as a frame, compressed if compression was negotiated and it pays off.
+     * @param payload The buffer holding the payload from its start.
+     * @param length The length of the payload.
+     * @throws IOException If the connection fails.
+     */
+    private void writeFrame(byte[] payload, int length) throws IOException {
+        byte[] packed = compression == null ? null : compression.compress(payload, 0, length);
+        if (packed != null) {
+            frameOut.writeInt(packed.length | FrameCompression.COMPRESSED);
+            frameOut.write(packed);
+        } else {
+            frameOut.writeInt(length);
+            frameOut.write(payload, 0, length);
+        }
+        frameOut.flush();
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Limits and progress of a single proof of work.
+ * A budget caps the number of hashes tried and/or the wall-clock time spent mining,
+ * can be cancelled from another thread, and counts the hashes tried so far so the
+ * progress and current hash rate can be reported while mining runs.
+ * A budget shared by the tickets of one block is only cancelled once all of them have left it.
+ */
+// Imports for counting hashes across mining threads and the tickets sharing the budget.
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+class MiningBudget {
+    // Number of hashes a miner tries between two budget checks.
+    static final int CHECK_INTERVAL = 1024;
+    // Maximum number of hashes to try, 0 for no limit.
+    private final long maxHashes;
+    // Maximum time to mine in milliseconds, 0 for no limit.
+    private final long maxMillis;
+    // Number of hashes tried so far over all mining threads.
+    private final AtomicLong hashesTried = new AtomicLong();
+    // Time mining started, 0 until it does.
+    private volatile long startTime;
+    // Flag raised when the mining is cancelled.
+    private volatile boolean cancelled;
+    // Number of tickets still wanting the block mined.
+    private final AtomicInteger holders = new AtomicInteger();
+    /**
+     * Constructs a new mining budget.
+     * @param maxHashes The maximum number of hashes to try, 0 for no limit.
+     * @param maxMillis The maximum time to mine in milliseconds, 0 for no limit.
+     */
+    public MiningBudget(long maxHashes, long maxMillis) {
+        this.maxHashes = maxHashes;
+        this.maxMillis = maxMillis;
+    }
+    /**
+     * Creates a budget without any limits.
+     * @return A budget that only runs out when cancelled.
+     */
+    public static MiningBudget unlimited() {
+        return new MiningBudget(0, 0);
+    }
+    /**
+     * Starts the clock of the budget, unless it is already running.
+     */
+    public synchronized void start() {
+        if (startTime == 0) {
+            startTime = System.currentTimeMillis();
+        }
+    }
+    /**
+     * Records hashes tried by a miner and checks whether mining may go on.
+     * @param hashes The number of hashes tried since the last call.
+     * @return True if the budget still allows mining.
+     */
+    public boolean record(long hashes) {
+        long total = hashesTried.addAndGet(hashes);
+        return !cancelled
+                && (maxHashes == 0 || total < maxHashes)
+                && (maxMillis == 0 || System.currentTimeMillis() - startTime < maxMillis);
+    }
+    /**
+     * Cancels the mining this budget belongs to.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+    /**
+     * Shares the budget between the tickets of a block, before any of them starts mining.
+     * @param tickets The number of tickets sharing the budget.
+     */
+    public void share(int tickets) {
+        holders.set(tickets);
+    }
+    /**
+     * Withdraws one ticket from the budget, cancelling the mining once no ticket wants it any more.
+     */
+    public void leave() {
+        if (holders.decrementAndGet() <= 0) {
+            cancel();
+        }
+    }
+    /**
+     * Getter for the cancelled flag.
+     * @return True if the mining was cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    /**
+     * Getter for the number of hashes tried so far.
+     * @return The number of hashes tried.
+     */
+    public long getHashesTried() {
+        return hashesTried.get();
+    }
+    /**
+     * Computes the current hash rate.
+     * @return The hashes tried per second since mining started.
+     */
+    public long getHashesPerSecond() {
+        // Nothing has been hashed before mining starts.
+        if (startTime == 0) {
+            return 0;
+        }
+        long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+        return hashesTried.get() * 1000 / elapsed;
+    }
+    /**
+     * Describes why mining stopped without finding a nonce.
+     * @return The reason the budget ran out.
+     */
+    public String stopReason() {
+        if (cancelled) {
+            return "cancelled";
+        }
+        if (maxHashes != 0 && hashesTried.get() >= maxHashes) {
+            return "hash budget of " + maxHashes + " hashes exhausted";
+        }
+        return "deadline of " + maxMillis + " milliseconds reached";
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Allocation-free hot loop for proof of work on a single block.
+ * The hash input of a block is index + timestamp + data + previousHash + nonce + difficulty,
+ * and only the nonce changes between attempts. The kernel therefore hashes the fixed prefix
+ * once, clones that digest state for every attempt, writes the decimal digits of a primitive
+ * long nonce into a reusable buffer and checks the leading zero nibbles directly on the
+ * digest bytes. The resulting hashes are bit-identical to Block.calculateHash().
+ * A kernel is not thread safe, every mining thread needs its own.
+ */
+// Imports for necessary libraries and classes
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+class MiningKernel {
+    // Length of a SHA-256 digest in bytes.
+    private static final int DIGEST_LENGTH = 32;
+    // Maximum number of decimal digits of a non-negative long.
+    private static final int MAX_NONCE_DIGITS = 19;
+    // Digest state after hashing the fixed block prefix.
+    private final MessageDigest midstate;
+    // Bytes hashed after the nonce (the difficulty digits).
+    private final byte[] suffix;
+    // Number of leading zero hex digits the hash must have.
+    private final int zeroNibbles;
+    // Reusable buffer the nonce digits are written into, right aligned.
+    private final byte[] nonceDigits = new byte[MAX_NONCE_DIGITS];
+    // Reusable buffer holding the digest of the last attempt.
+    private final byte[] digest = new byte[DIGEST_LENGTH];
+    /**
+     * Constructs a mining kernel for the given block.
+     * @param block The block to mine, which must not change while the kernel is used.
+     */
+    public MiningKernel(Block block) {
+        try {
+            // Hash the part of the block that is the same for every nonce once.
+            midstate = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        midstate.update(block.hashPrefix().getBytes());
+        // The difficulty is hashed after the nonce.
+        suffix = String.valueOf(block.getDifficulty()).getBytes();
+        zeroNibbles = block.getDifficulty();
+    }
+    /**
+     * Hashes the block with the given nonce and checks it against the target.
+     * @param nonce The nonce to try, must not be negative.
+     * @return True if the hash starts with the required number of zeros.
+     */
+    public boolean tryNonce(long nonce) {
+        // Start from a copy of the prefix state.
+        MessageDigest md;
+        try {
+            md = (MessageDigest) midstate.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        }
+        // Write the nonce digits from the right end of the buffer.
+        int pos = MAX_NONCE_DIGITS;
+        do {
+            nonceDigits[--pos] = (byte) ('0' + (nonce % 10));
+            nonce /= 10;
+        } while (nonce != 0);
+        md.update(nonceDigits, pos, MAX_NONCE_DIGITS - pos);
+        md.update(suffix);
+        try {
+            // Finish the hash into the reusable digest buffer.
+            md.digest(digest, 0, DIGEST_LENGTH);
+        } catch (DigestException e) {
+            throw new RuntimeException(e);
+        }
+        return meetsTarget(digest, zeroNibbles);
+    }
+    /**
+     * Returns a copy of the raw hash of the last attempt.
+     * @return The 32 byte hash of the last nonce tried.
+     */
+    public byte[] lastDigest() {
+        return digest.clone();
+    }
+    /**
+     * Checks whether a digest starts with the given number of zero hex digits.
+     * @param digest The digest to check.
+     * @param zeroNibbles The number of leading zero hex digits required.
+     * @return True if the digest meets the target.
+     */
+    static boolean meetsTarget(byte[] digest, int zeroNibbles) {
+        // A negative target or one longer than the hash can never be met.
+        if (zeroNibbles < 0 || zeroNibbles > digest.length * 2) {
+            return false;
+        }
+        // Every full byte of the target must be zero.
+        int fullBytes = zeroNibbles / 2;
+        for (int i = 0; i < fullBytes; i++) {
+            if (digest[i] != 0) {
+                return false;
+            }
+        }
+        // An odd target also needs the high nibble of the next byte to be zero.
+        return zeroNibbles % 2 == 0 || (digest[fullBytes] & 0xF0) == 0;
+    }
+}
@@ -0,0 +1,290 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Background block producer for a blockchain.
+ * Transactions submitted here wait in a mempool until the producer drains them into
+ * multi-transaction blocks, either once a block's worth has arrived or once the batching
+ * window has passed, so a single proof of work covers many transactions. Transactions
+ * asking for different difficulties go into separate blocks. Blocks are mined and appended
+ * on a single background thread, so the server loop can answer other requests while proof
+ * of work runs. Each block is mined within a budget of hashes and/or time, so careless or
+ * adversarial difficulties give up with a "not mined" result instead of pinning the miner.
+ * Every other change to the chain (corrupting or repairing it) is run on the same thread,
+ * which keeps all writers serialized behind each other.
+ * The mempool is bounded: once it holds as many transactions or characters as allowed,
+ * further submissions are refused until blocks are mined, so neither the waiting
+ * transactions nor their tickets grow without bound.
+ * Finished tickets are kept for a retention period, and at most a set number of them,
+ * so the tickets of a long-running server do not grow with every transaction ever submitted.
+ */
+// Imports for necessary libraries and classes
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+class MiningService {
+    // Chain the mined blocks are appended to.
+    private final BlockChain chain;
+    // Single thread that runs every write to the chain.
+    private final ScheduledExecutorService executor;
+    // Transactions waiting to be mined.
+    private final Mempool mempool;
+    // Tickets handed out and not yet forgotten, by identifier.
+    private final ConcurrentHashMap<Long, MiningTicket> tickets = new ConcurrentHashMap<>();
+    // Finished tickets in the order they finished, oldest first, and how many.
+    private final ConcurrentLinkedQueue<MiningTicket> finished = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger finishedCount = new AtomicInteger();
+    // Identifier of the next ticket.
+    private final AtomicLong nextTicketId = new AtomicLong(1);
+    // Flag set while a run of the block producer is scheduled.
+    private final AtomicBoolean producerScheduled = new AtomicBoolean(false);
+    // Maximum number of hashes to try per block, 0 for no limit.
+    private final long maxHashes;
+    // Maximum time to mine a block in milliseconds, 0 for no limit.
+    private final long maxMillis;
+    // Maximum number of transactions in one block.
+    private final int maxBlockTransactions;
+    // Time to wait for more transactions before mining a partly filled block.
+    private final long windowMillis;
+    // Time a finished ticket can still be looked up, in milliseconds.
+    private final long ticketRetentionMillis;
+    // Maximum number of finished tickets kept, however recent.
+    private final int maxFinishedTickets;
+    /**
+     * Constructs a mining service for the given chain.
+     * @param chain The chain to mine blocks for.
+     * @param maxHashes The maximum number of hashes to try per block, 0 for no limit.
+     * @param maxMillis The maximum time to mine a block in milliseconds, 0 for no limit.
+     * @param maxBlockTransactions The maximum number of transactions in one block.
+     * @param windowMillis The time to wait for more transactions before mining a block.
+     * @param ticketRetentionMillis The time a finished ticket can still be looked up, in milliseconds.
+     * @param maxFinishedTickets The maximum number of finished tickets kept.
+     * @param maxPending The maximum number of transactions waiting in the mempool.
+     * @param maxPendingChars The maximum number of characters of transactions waiting in the mempool.
+     */
+    public MiningService(BlockChain chain, long maxHashes, long maxMillis, int maxBlockTransactions, long windowMillis,
+                         long ticketRetentionMillis, int maxFinishedTickets, int maxPending, long maxPendingChars) {
+        this.chain = chain;
+        this.mempool = new Mempool(Math.max(1, maxPending), Math.max(1, maxPendingChars));
+        this.maxHashes = maxHashes;
+        this.maxMillis = maxMillis;
+        this.maxBlockTransactions = Math.max(1, maxBlockTransactions);
+        this.windowMillis = windowMillis;
+        this.ticketRetentionMillis = ticketRetentionMillis;
+        this.maxFinishedTickets = Math.max(0, maxFinishedTickets);
+        // Run on a daemon thread so an idle miner never keeps the server alive.
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "block-miner");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+    /**
+     * Queues a transaction to be mined into a block.
+     * @param tx The transaction to store in a block.
+     * @param difficulty The difficulty of the block.
+     * @return The ticket tracking the transaction.
+     * @throws IllegalArgumentException If there is no transaction or the difficulty is out of range.
+     * @throws IllegalStateException If the mempool is full.
+     */
+    public MiningTicket submit(String tx, int difficulty) {
+        // A missing transaction or a bad difficulty would only fail on the mining thread, with the whole block
+        if (tx == null) {
+            throw new IllegalArgumentException("No transaction to mine");
+        }
+        if (difficulty < 0 || difficulty > Block.MAX_DIFFICULTY) {
+            throw new IllegalArgumentException("Difficulty " + difficulty + " out of range");
+        }
+        // Hand out a new ticket for the transaction.
+        MiningTicket ticket = new MiningTicket(nextTicketId.getAndIncrement());
+        tickets.put(ticket.getId(), ticket);
+        int waiting = mempool.add(new Mempool.PendingTransaction(tx, difficulty, ticket));
+        if (waiting < 0) {
+            // Turn the transaction away, and its ticket with it, until blocks are mined
+            tickets.remove(ticket.getId());
+            throw new IllegalStateException("Mempool full");
+        }
+        // Mine right away once a full block is waiting, otherwise after the window.
+        if (waiting >= maxBlockTransactions) {
+            executor.execute(this::produceBlocks);
+        } else {
+            scheduleProducer();
+        }
+        return ticket;
+    }
+    /**
+     * Looks up a ticket.
+     * @param id The ticket identifier.
+     * @return The ticket, or null if no ticket has that identifier or it finished long enough ago to be forgotten.
+     */
+    public MiningTicket getTicket(long id) {
+        return tickets.get(id);
+    }
+    /**
+     * Cancels a ticket, whether its transaction is queued or being mined.
+     * @param id The ticket identifier.
+     * @return The ticket, or null if no ticket has that identifier.
+     */
+    public MiningTicket cancel(long id) {
+        MiningTicket ticket = tickets.get(id);
+        if (ticket != null) {
+            ticket.cancel();
+        }
+        return ticket;
+    }
+    /**
+     * Counts the transactions waiting to be mined.
+     * @return The number of transactions in the mempool.
+     */
+    public int getPendingCount() {
+        return mempool.size();
+    }
+    /**
+     * Runs a change to the chain on the mining thread, after all blocks already
+     * being produced, and waits for it to finish. The task holds the chain's write lock while it runs,
+     * and the blocks it changed are written to the chain's durable log afterwards.
+     * The calling thread blocks until then: behind a queue of blocks whose proof of work may each
+     * take up to the mining budget (-Dmining.maxMillis), a corruptChain or repairChain request
+     * can keep its client waiting for minutes. Only the connection making the request waits;
+     * other connections and pipelined requests are served meanwhile.
+     * @param task The change to run.
+     * @return The result of the task.
+     */
+    public <T> T runExclusive(Callable<T> task) {
+        return runSerialized(() -> chain.callExclusive(task));
+    }
+    /**
+     * Runs a change to the chain on the mining thread, after all blocks already being produced,
+     * without taking the chain's lock, and waits for it to finish. For a task that takes the lock
+     * itself only for as long as it needs it, such as a repair that mines outside of it. Being on
+     * the mining thread, no other change to the chain runs meanwhile. The blocks it changed are
+     * written to the chain's durable log afterwards, and the caller blocks as with runExclusive.
+     * @param task The change to run.
+     * @return The result of the task.
+     */
+    public <T> T runSerialized(Callable<T> task) {
+        try {
+            return executor.submit(() -> {
+                T result = task.call();
+                chain.persistChanges();
+                return result;
+            }).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    /**
+     * Records that a ticket finished, then forgets the finished tickets that are past the
+     * retention period or beyond the maximum number kept. Runs on the mining thread, the
+     * only one finishing tickets, so the oldest finished ticket is always at the head.
+     * @param ticket The ticket just committed or given up.
+     */
+    private void retire(MiningTicket ticket) {
+        finished.add(ticket);
+        finishedCount.incrementAndGet();
+        long cutoff = System.currentTimeMillis() - ticketRetentionMillis;
+        MiningTicket oldest;
+        while ((oldest = finished.peek()) != null
+                && (finishedCount.get() > maxFinishedTickets || oldest.getFinishedAt() < cutoff)) {
+            finished.poll();
+            finishedCount.decrementAndGet();
+            tickets.remove(oldest.getId());
+        }
+    }
+    /**
+     * Schedules a run of the block producer after the batching window, unless one is already scheduled.
+     */
+    private void scheduleProducer() {
+        if (producerScheduled.compareAndSet(false, true)) {
+            executor.schedule(this::produceBlocks, windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+    /**
+     * Drains up to a block's worth of transactions from the mempool and mines them,
+     * one block per requested difficulty. Runs on the mining thread.
+     */
+    private void produceBlocks() {
+        // Allow the next submission to schedule another run.
+        producerScheduled.set(false);
+        // Group the drained transactions by difficulty, keeping their order.
+        Map<Integer, List<Mempool.PendingTransaction>> byDifficulty = new LinkedHashMap<>();
+        for (Mempool.PendingTransaction tx : mempool.drain(maxBlockTransactions)) {
+            byDifficulty.computeIfAbsent(tx.difficulty, d -> new ArrayList<>()).add(tx);
+        }
+        for (Map.Entry<Integer, List<Mempool.PendingTransaction>> group : byDifficulty.entrySet()) {
+            try {
+                mineBlock(group.getKey(), group.getValue());
+            } catch (RuntimeException e) {
+                // Give up the tickets of a block that failed instead of leaving them mining forever,
+                // and go on with the other blocks
+                ServerLog.error("blockFailed", "difficulty", group.getKey(), "error", e);
+                for (Mempool.PendingTransaction tx : group.getValue()) {
+                    MiningTicket.Status status = tx.ticket.getStatus();
+                    if (status == MiningTicket.Status.QUEUED || status == MiningTicket.Status.MINING) {
+                        tx.ticket.fail("error while mining: " + e);
+                        retire(tx.ticket);
+                    }
+                }
+            }
+        }
+        // Come back for transactions that arrived while mining.
+        if (mempool.size() > 0) {
+            scheduleProducer();
+        }
+    }
+    /**
+     * Mines a block holding the given transactions and appends it to the chain.
+     * @param difficulty The difficulty of the block.
+     * @param batch The transactions to store in the block.
+     */
+    private void mineBlock(int difficulty, List<Mempool.PendingTransaction> batch) {
+        // Leave out transactions cancelled while they were queued.
+        List<Mempool.PendingTransaction> included = new ArrayList<>();
+        for (Mempool.PendingTransaction tx : batch) {
+            if (tx.ticket.isCancelled()) {
+                tx.ticket.fail("cancelled");
+                retire(tx.ticket);
+            } else {
+                included.add(tx);
+            }
+        }
+        if (included.isEmpty()) {
+            return;
+        }
+        // Every transaction of the block shares the block's budget, which only a cancel of them all stops.
+        MiningBudget budget = new MiningBudget(maxHashes, maxMillis);
+        budget.share(included.size());
+        List<String> transactions = new ArrayList<>(included.size());
+        for (Mempool.PendingTransaction tx : included) {
+            transactions.add(tx.transaction);
+            tx.ticket.startMining(budget);
+        }
+        // Create the block on the mining thread so it follows every block mined before it.
+        Block newBlock = new Block(chain.getLatestBlock().getIndex() + 1, chain.getTime(), transactions, difficulty);
+        // Mine the block and append it to the chain, unless the budget runs out. A ticket cancelled
+        // meanwhile is committed with the others, its transaction being part of the mined block.
+        if (chain.addBlock(newBlock, budget)) {
+            for (Mempool.PendingTransaction tx : included) {
+                tx.ticket.commit(newBlock.getIndex(), newBlock.calculateHash(), newBlock.getNonce());
+                retire(tx.ticket);
+            }
+            return;
+        }
+        for (Mempool.PendingTransaction tx : included) {
+            tx.ticket.fail(tx.ticket.isCancelled() ? "cancelled" : budget.stopReason());
+            retire(tx.ticket);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Tracks a transaction handed to the background block producer.
+ * A ticket starts out QUEUED, becomes MINING once its transaction is put in a block
+ * and COMMITTED once that block has been appended to the chain, at which point it
+ * also carries the index, hash and nonce of the block. If the mining budget runs
+ * out or the ticket is cancelled first, it ends up NOT_MINED instead.
+ * Cancelling a ticket whose block is being mined does not stop the proof of work that the
+ * other tickets of the block share; it only stops it once every ticket of the block is cancelled.
+ * A finished ticket remembers when it finished, so the service can forget it later.
+ */
+// Import for handling large integers.
+import java.math.BigInteger;
+
+class MiningTicket {
+    /**
+     * The states a ticket moves through.
+     */
+    enum Status { QUEUED, MINING, COMMITTED, NOT_MINED }
+    // Identifier handed back to the client.
+    private final long id;
+    // Limits and progress of the proof of work, once mining starts.
+    private volatile MiningBudget budget;
+    // Flag raised when the client cancels the ticket.
+    private volatile boolean cancelled;
+    // Current state of the ticket.
+    private volatile Status status;
+    // Index of the committed block.
+    private volatile int blockIndex;
+    // Hash of the committed block.
+    private volatile String hash;
+    // Nonce of the committed block.
+    private volatile BigInteger nonce;
+    // Reason the block was not mined.
+    private volatile String failure;
+    // Time the ticket was committed or given up, in epoch milliseconds.
+    private volatile long finishedAt;
+    /**
+     * Constructs a new queued ticket.
+     * @param id The identifier of the ticket.
+     */
+    public MiningTicket(long id) {
+        this.id = id;
+        this.status = Status.QUEUED;
+    }
+    /**
+     * Getter for the ticket identifier.
+     * @return The ticket identifier.
+     */
+    public long getId() {
+        return id;
+    }
+    /**
+     * Getter for the ticket status.
+     * @return The current status of the ticket.
+     */
+    public Status getStatus() {
+        return status;
+    }
+    /**
+     * Getter for the cancelled flag.
+     * @return True if the client cancelled the ticket.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    /**
+     * Cancels the ticket. A queued ticket is dropped when the producer reaches it, a ticket
+     * being mined withdraws from its block, whose proof of work stops once no ticket wants it.
+     */
+    public synchronized void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        if (budget != null) {
+            budget.leave();
+        }
+    }
+    /**
+     * Marks the ticket as being mined.
+     * @param budget The limits of the proof of work of the ticket's block, already shared between its tickets.
+     */
+    public synchronized void startMining(MiningBudget budget) {
+        this.budget = budget;
+        status = Status.MINING;
+        // A cancel that raced with the start still withdraws from the block.
+        if (cancelled) {
+            budget.leave();
+        }
+    }
+    /**
+     * Marks the ticket as committed to the chain.
+     * @param blockIndex The index of the committed block.
+     * @param hash The hash of the committed block.
+     * @param nonce The nonce of the committed block.
+     */
+    public void commit(int blockIndex, String hash, BigInteger nonce) {
+        this.blockIndex = blockIndex;
+        this.hash = hash;
+        this.nonce = nonce;
+        this.finishedAt = System.currentTimeMillis();
+        // Publish the status last so readers see the block details with it.
+        status = Status.COMMITTED;
+    }
+    /**
+     * Marks the ticket as given up without a block.
+     * @param reason Why the block was not mined.
+     */
+    public void fail(String reason) {
+        this.failure = reason;
+        this.finishedAt = System.currentTimeMillis();
+        status = Status.NOT_MINED;
+    }
+    /**
+     * Getter for the time the ticket finished.
+     * @return The time the ticket was committed or given up, in epoch milliseconds.
+     */
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+    /**
+     * Describes the ticket for a client response.
+     * @return A human-readable description of the ticket.
+     */
+    public String describe() {
+        // Read the status once so the description is consistent.
+        Status current = status;
+        String desc = "Ticket " + id + ": " + current;
+        // Committed tickets also report where their block ended up.
+        if (current == Status.COMMITTED) {
+            if (cancelled) {
+                desc += "\nCancelled too late, the block was already being mined";
+            }
+            desc += "\nBlock index: " + blockIndex;
+            desc += "\nHash: " + hash;
+            desc += "\nNonce: " + nonce;
+        }
+        // Tickets being mined report their progress.
+        if (current == Status.MINING) {
+            desc += "\nHashes tried: " + budget.getHashesTried();
+            desc += "\nCurrent hashes per second: " + budget.getHashesPerSecond();
+        }
+        // Tickets given up report why.
+        if (current == Status.NOT_MINED) {
+            desc += "\nNot mined: " + failure;
+        }
+        return desc;
+    }
+}
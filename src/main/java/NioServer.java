@@ -0,0 +1,479 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Event-driven front end of the blockchain server, for large numbers of connections.
+ * Every message travels in a frame: a 4-byte big-endian length followed by that many bytes
+ * of UTF-8 JSON, in place of the newline-terminated lines of the blocking server.
+ * A few I/O threads each run a Selector over their share of the connections and only move
+ * bytes, through one direct read buffer and one direct write buffer per thread that every
+ * read and write reuses. A connection only holds memory of its own for a frame that arrived
+ * in part, grown as its bytes arrive rather than to the size its header claims. A socket that
+ * does not take a whole response at once is watched for OP_WRITE and finished later, so a
+ * slow client never holds up the others. A connection whose queued requests and responses
+ * pass -Dserver.maxQueued frames or MAX_FRAME bytes is not read from until they drain, so a
+ * client sending faster than it is served, or not reading its responses, is held back by TCP
+ * instead of filling the server's memory. Decoded requests are handed to a pool of worker threads,
+ * which check the signatures and carry the requests out; mining itself runs on the
+ * MiningService thread. The requests of one connection are carried out one after another,
+ * so its responses come back in the order it sent the requests, except for requests with a
+ * request ID, which the connection's Pipeline lets run alongside each other.
+ * After a setCompression request, response frames above the negotiated size are compressed.
+ * A client that opens with WireCodec.MAGIC gets frames in the binary encoding instead of JSON.
+ */
+// Imports for necessary libraries and classes
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+class NioServer {
+    // Largest request frame accepted; a larger one closes the connection.
+    static final int MAX_FRAME = 16 << 20;
+    // Size of the direct buffers every I/O thread reads and writes through.
+    private static final int BUFFER_SIZE = 64 << 10;
+    // Most requests and responses queued for a connection before it is no longer read from.
+    private static final int MAX_QUEUED = Math.max(1, Integer.getInteger("server.maxQueued", 32));
+    // Processor carrying out the requests.
+    private final RequestProcessor processor;
+    // Threads carrying out the decoded requests.
+    private final ExecutorService workers;
+    // Threads running pipelined requests, apart from the workers so a full pipeline never waits for itself.
+    private final ExecutorService pipelined = VerifyingServerTCP.newThreadPerTaskExecutor();
+    // Threads moving the bytes, each with its own selector.
+    private final IoLoop[] loops;
+    /**
+     * Constructs the server.
+     * @param processor The processor carrying out the requests.
+     * @param ioThreads The number of selector threads.
+     * @param workerThreads The number of threads carrying out requests.
+     * @throws IOException If a selector cannot be opened.
+     */
+    public NioServer(RequestProcessor processor, int ioThreads, int workerThreads) throws IOException {
+        this.processor = processor;
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerThreads));
+        this.loops = new IoLoop[Math.max(1, ioThreads)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new IoLoop();
+        }
+    }
+    /**
+     * Starts the I/O threads and accepts connections forever, handing them to the
+     * I/O threads in turn.
+     * @param port The port to listen on.
+     * @throws IOException If the port cannot be bound or accepting fails.
+     */
+    public void serve(int port) throws IOException {
+        for (int i = 0; i < loops.length; i++) {
+            Thread t = new Thread(loops[i], "nio-io-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(port));
+            // Accepting blocks this thread only, the I/O threads never wait on it.
+            for (int next = 0; ; next = (next + 1) % loops.length) {
+                SocketChannel channel = server.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                loops[next].wake(new Connection(channel, loops[next]));
+            }
+        }
+    }
+
+    /**
+     * One I/O thread and the selector over its connections.
+     */
+    private class IoLoop implements Runnable {
+        // Selector over the connections of this thread.
+        private final Selector selector;
+        // Connections to register, with responses to write or to close, handed over by other threads.
+        private final ConcurrentLinkedQueue<Connection> pending = new ConcurrentLinkedQueue<>();
+        // Buffer every read of this thread goes through.
+        final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        // Buffer every write of this thread goes through.
+        final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        /**
+         * Constructs an I/O loop with a new selector.
+         * @throws IOException If the selector cannot be opened.
+         */
+        IoLoop() throws IOException {
+            selector = Selector.open();
+        }
+        /**
+         * Asks the I/O thread to look at a connection: to register it if it is new, and
+         * otherwise to write its queued responses or close it.
+         * @param conn The connection.
+         */
+        void wake(Connection conn) {
+            pending.add(conn);
+            selector.wakeup();
+        }
+        /**
+         * Selects and serves ready connections forever.
+         */
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    selector.select();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                // Serve the connections handed over by other threads.
+                Connection conn;
+                while ((conn = pending.poll()) != null) {
+                    try {
+                        if (conn.key == null) {
+                            conn.key = conn.channel.register(selector, SelectionKey.OP_READ, conn);
+                        }
+                        if (conn.failed) {
+                            conn.close();
+                        } else {
+                            conn.flush();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        conn.close();
+                    }
+                }
+                // Serve the connections the selector found ready.
+                for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext(); ) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    conn = (Connection) key.attachment();
+                    try {
+                        if (key.isValid() && key.isReadable()) {
+                            conn.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            conn.flush();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        // A broken or misbehaving client only loses its own connection.
+                        conn.close();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * State of one client connection. Its partial frame and the response being written are
+     * only touched by its I/O thread; the workers hand requests and responses over through the queues.
+     */
+    private class Connection {
+        // Channel of the client.
+        final SocketChannel channel;
+        // I/O thread serving the connection.
+        final IoLoop loop;
+        // Registration with the selector, set by the I/O thread.
+        SelectionKey key;
+        // Start of a frame that arrived in part, in write mode between reads, or null.
+        private ByteBuffer partial;
+        // Size of the frame in partial, length included, or 0 while its length is not known.
+        private int partialSize;
+        // Number and total size of the requests and responses queued, moved by any thread.
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicLong queuedBytes = new AtomicLong();
+        // Set while the connection is not read from because too much is queued.
+        private volatile boolean readPaused;
+        // Set while the socket does not take more of the responses.
+        private boolean writeBlocked;
+        // Payloads of the requests waiting for a worker.
+        private final ConcurrentLinkedQueue<byte[]> requests = new ConcurrentLinkedQueue<>();
+        // Set once the first bytes showed whether the client speaks JSON or the binary protocol.
+        private boolean greeted;
+        // True if the frames hold the binary encoding of WireCodec instead of JSON.
+        private volatile boolean binary;
+        // Frames of the responses waiting to be written, length prefix included.
+        private final ConcurrentLinkedQueue<byte[]> responses = new ConcurrentLinkedQueue<>();
+        // Compressor of the response frames once the client asked for it, or null.
+        private volatile FrameCompression compression;
+        // Flag set while a worker is carrying out the requests of this connection.
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        // Frame being written, and how many of its bytes are written.
+        private byte[] current;
+        private int framePos;
+        // Set after clientExit, to close the connection once its responses are written.
+        private volatile boolean closing;
+        // Set by a worker when the client sent something that is not a request.
+        volatile boolean failed;
+        // Runs the requests with a request ID alongside each other.
+        private final Pipeline pipeline;
+        /**
+         * Constructs the state of a new connection.
+         * @param channel The channel of the client.
+         * @param loop The I/O thread serving the connection.
+         */
+        Connection(SocketChannel channel, IoLoop loop) {
+            this.channel = channel;
+            this.loop = loop;
+            this.pipeline = new Pipeline(processor, pipelined,
+                    Integer.getInteger("server.maxPipelined", Pipeline.DEFAULT_MAX_IN_FLIGHT), this::respond);
+        }
+        /**
+         * Reads what the client sent and hands every complete frame to a worker.
+         * @throws IOException If the channel fails or a frame is too large.
+         */
+        void read() throws IOException {
+            ByteBuffer shared = loop.readBuffer;
+            shared.clear();
+            if (channel.read(shared) < 0) {
+                close();
+                return;
+            }
+            shared.flip();
+            ByteBuffer buf = shared;
+            if (partial != null) {
+                // Complete the frame started by an earlier read, doubling the buffer as bytes
+                // arrive but never past the size of the frame, so a header alone costs nothing.
+                if (partial.remaining() < shared.remaining()) {
+                    int arrived = partial.position() + shared.remaining();
+                    int size = Math.max(arrived, Math.min(partial.capacity() * 2, partialSize));
+                    partial = ByteBuffer.allocate(size).put(partial.flip());
+                }
+                buf = partial.put(shared).flip();
+            }
+            partialSize = decode(buf);
+            // Keep the start of an incomplete frame for the next read, in a buffer just large
+            // enough for what arrived, unless the buffer already holds that same frame.
+            if (!buf.hasRemaining()) {
+                partial = null;
+            } else if (buf == partial && buf.position() == 0) {
+                partial.compact();
+            } else {
+                partial = ByteBuffer.allocate(buf.remaining()).put(buf);
+            }
+            schedule();
+            updateInterest();
+        }
+        /**
+         * Queues every complete frame in a buffer as a request.
+         * @param buf The bytes read, in read mode. Left positioned at the first incomplete frame.
+         * @return The size of the incomplete frame, length included, or 0 if it is not known yet.
+         * @throws IOException If a frame is too large.
+         */
+        private int decode(ByteBuffer buf) throws IOException {
+            if (!greeted) {
+                // A client asking for the binary protocol starts with WireCodec.MAGIC, which is echoed back.
+                if (!buf.hasRemaining()) {
+                    return 0;
+                }
+                if (buf.get(buf.position()) == (byte) (WireCodec.MAGIC >>> 24)) {
+                    if (buf.remaining() < 4) {
+                        return 4;
+                    }
+                    if (buf.getInt() != WireCodec.MAGIC) {
+                        throw new IOException("Unknown protocol");
+                    }
+                    binary = true;
+                    queueResponse(ByteBuffer.allocate(4).putInt(WireCodec.MAGIC).array());
+                }
+                greeted = true;
+            }
+            while (buf.remaining() >= 4) {
+                int length = buf.getInt(buf.position());
+                // The top bit of the length marks a compressed payload.
+                boolean compressed = (length & FrameCompression.COMPRESSED) != 0;
+                length &= ~FrameCompression.COMPRESSED;
+                if (length > MAX_FRAME) {
+                    throw new IOException("Frame of " + length + " bytes");
+                }
+                if (buf.remaining() < 4 + length) {
+                    return 4 + length;
+                }
+                buf.getInt();
+                byte[] frame = new byte[length];
+                buf.get(frame);
+                if (compressed) {
+                    frame = FrameCompression.decompress(frame, 0, length, MAX_FRAME);
+                }
+                // Ignore whatever follows clientExit.
+                if (!closing) {
+                    requests.add(frame);
+                    acquire(frame.length);
+                }
+            }
+            return 0;
+        }
+        /**
+         * Hands the queued requests to a worker, unless one is already at them.
+         */
+        private void schedule() {
+            if (!requests.isEmpty() && scheduled.compareAndSet(false, true)) {
+                workers.execute(this::work);
+            }
+        }
+        /**
+         * Carries out the queued requests in order, or starts them if they are pipelined.
+         * Runs on a worker thread.
+         */
+        private void work() {
+            byte[] payload;
+            while ((payload = requests.poll()) != null) {
+                release(payload.length);
+                RequestMessage request;
+                ResponseMessage response;
+                try {
+                    request = binary ? WireCodec.decodeRequest(ByteBuffer.wrap(payload))
+                            : MessageCodec.GSON.fromJson(new String(payload, StandardCharsets.UTF_8), RequestMessage.class);
+                    response = pipeline.submit(request);
+                } catch (RuntimeException e) {
+                    // Drop the connection, like the blocking server does.
+                    ServerLog.info("connectionClosed", "reason", e);
+                    failed = true;
+                    loop.wake(this);
+                    return;
+                }
+                if (response == null) {
+                    continue;
+                }
+                // Compress the frames from this response on, as the client asked.
+                if ("setCompression".equals(response.getResponseType())) {
+                    compression = FrameCompression.parse(request.getVar1(), request.getVar2());
+                }
+                respond(response);
+                if ("clientExit".equals(response.getResponseType())) {
+                    // Close once the response is out.
+                    closing = true;
+                    while ((payload = requests.poll()) != null) {
+                        release(payload.length);
+                    }
+                    loop.wake(this);
+                }
+            }
+            // Have the I/O thread read again if it stopped because too much was queued.
+            if (readPaused) {
+                loop.wake(this);
+            }
+            scheduled.set(false);
+            // Pick up a request that arrived after the queue was found empty.
+            schedule();
+        }
+        /**
+         * Queues a response for the I/O thread to write. Called from any thread.
+         * @param response The response to send.
+         */
+        private void respond(ResponseMessage response) {
+            byte[] payload;
+            if (binary) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try {
+                    WireCodec.encode(response, new DataOutputStream(bytes));
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                payload = bytes.toByteArray();
+            } else {
+                payload = MessageCodec.GSON.toJson(response).getBytes(StandardCharsets.UTF_8);
+            }
+            FrameCompression packer = compression;
+            byte[] packed = packer == null ? null : packer.compress(payload, 0, payload.length);
+            byte[] body = packed == null ? payload : packed;
+            // Put the length in front, with the top bit set for a compressed payload.
+            byte[] frame = new byte[4 + body.length];
+            ByteBuffer.wrap(frame).putInt(packed == null ? body.length : body.length | FrameCompression.COMPRESSED);
+            System.arraycopy(body, 0, frame, 4, body.length);
+            queueResponse(frame);
+        }
+        /**
+         * Queues a frame for the I/O thread to write. Called from any thread.
+         * @param frame The frame, length prefix included.
+         */
+        private void queueResponse(byte[] frame) {
+            responses.add(frame);
+            acquire(frame.length);
+            loop.wake(this);
+        }
+        /**
+         * Counts a request or response frame as queued.
+         * @param bytes The size of the frame.
+         */
+        private void acquire(int bytes) {
+            queued.incrementAndGet();
+            queuedBytes.addAndGet(bytes);
+        }
+        /**
+         * Counts a request or response frame as no longer queued.
+         * @param bytes The size of the frame.
+         */
+        private void release(int bytes) {
+            queued.decrementAndGet();
+            queuedBytes.addAndGet(-bytes);
+        }
+        /**
+         * Watches the socket for reads unless too much is queued, and for writes while the
+         * socket does not take the responses. Runs on the I/O thread.
+         */
+        private void updateInterest() {
+            if (key == null || !key.isValid()) {
+                return;
+            }
+            readPaused = queued.get() > MAX_QUEUED || queuedBytes.get() > MAX_FRAME;
+            key.interestOps((readPaused ? 0 : SelectionKey.OP_READ) | (writeBlocked ? SelectionKey.OP_WRITE : 0));
+        }
+        /**
+         * Writes as much of the queued responses as the socket takes, and watches the
+         * socket for OP_WRITE if it did not take everything.
+         * @throws IOException If the channel fails.
+         */
+        void flush() throws IOException {
+            ByteBuffer shared = loop.writeBuffer;
+            while (current != null || (current = responses.poll()) != null) {
+                // Fill the buffer with the next part of the frame.
+                shared.clear();
+                int frameSize = current.length;
+                int n = Math.min(shared.remaining(), frameSize - framePos);
+                shared.put(current, framePos, n);
+                framePos += n;
+                shared.flip();
+                channel.write(shared);
+                // Take back whatever the socket did not take, and finish once the client has read some.
+                framePos -= shared.remaining();
+                if (shared.hasRemaining()) {
+                    writeBlocked = true;
+                    updateInterest();
+                    return;
+                }
+                if (framePos == frameSize) {
+                    release(frameSize);
+                    current = null;
+                    framePos = 0;
+                }
+            }
+            writeBlocked = false;
+            updateInterest();
+            // Close after clientExit once its response is out.
+            if (closing) {
+                close();
+            }
+        }
+        /**
+         * Closes the connection.
+         */
+        void close() {
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Ignore exception on close
+            }
+        }
+    }
+}
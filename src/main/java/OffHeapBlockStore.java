@@ -0,0 +1,280 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Block store keeping the blocks outside the Java heap, for chains too large to hold as
+ * Block objects. Every block has a fixed-width header in a header page:
+ * [long timestamp][long nonce][long payload location][int index][int difficulty]
+ * [int payload length][32 byte hash], so block i is found by arithmetic alone. The
+ * previous hash and the transactions go into variable-length payloads packed into
+ * separate payload pages. Pages are direct ByteBuffers of a fixed size, allocated as
+ * the chain grows, so the heap only holds the page list however long the chain gets.
+ * get decodes a short-lived Block view with its stored hash, so reading a block never
+ * re-hashes it. A changed view is stored again through writeBack; a payload that grew
+ * is appended to the pages and the old copy is left unused.
+ * Appends only ever write past the current end, so a view taken for a snapshot shares the
+ * pages and is bounded by the size it was taken at; nothing is copied.
+ * Direct memory is limited by -XX:MaxDirectMemorySize, which defaults to the heap size.
+ */
+// Imports for necessary libraries and classes
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+class OffHeapBlockStore implements BlockStore {
+    // Offsets of the fields in a block header.
+    private static final int TIMESTAMP = 0;
+    private static final int NONCE = 8;
+    private static final int PAYLOAD_AT = 16;
+    private static final int INDEX = 24;
+    private static final int DIFFICULTY = 28;
+    private static final int PAYLOAD_LENGTH = 32;
+    private static final int HASH = 36;
+    // Size of a block header.
+    private static final int HEADER_SIZE = HASH + 32;
+    // Size of every page in bytes.
+    private final int pageSize;
+    // Number of block headers in one header page.
+    private final int headersPerPage;
+    // Pages holding the block headers.
+    private final ArrayList<ByteBuffer> headerPages = new ArrayList<>();
+    // Pages holding the block payloads.
+    private final ArrayList<ByteBuffer> payloadPages = new ArrayList<>();
+    // Payload page new payloads are appended to, -1 before the first one.
+    private int currentPayloadPage = -1;
+    // Bytes used in the current payload page.
+    private int payloadFill;
+    // Number of blocks in the store.
+    private int size;
+    // True for a view of another store, whose pages must not be written.
+    private final boolean readOnly;
+    /**
+     * Constructs an empty off-heap block store.
+     * @param pageSize The size of every page in bytes, at least one block header.
+     */
+    public OffHeapBlockStore(int pageSize) {
+        this.pageSize = Math.max(HEADER_SIZE, pageSize);
+        this.headersPerPage = this.pageSize / HEADER_SIZE;
+        this.readOnly = false;
+    }
+    /**
+     * Constructs a read-only view sharing the pages of a store, up to its current size.
+     * @param of The store to view.
+     */
+    private OffHeapBlockStore(OffHeapBlockStore of) {
+        this.pageSize = of.pageSize;
+        this.headersPerPage = of.headersPerPage;
+        this.readOnly = true;
+        // Only the page lists are copied, the pages themselves are shared.
+        this.headerPages.addAll(of.headerPages);
+        this.payloadPages.addAll(of.payloadPages);
+        this.currentPayloadPage = of.currentPayloadPage;
+        this.payloadFill = of.payloadFill;
+        this.size = of.size;
+    }
+    /**
+     * Counts the blocks in the store.
+     * @return The number of blocks.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+    /**
+     * Decodes a view of a block from its header and payload.
+     * @param i The position of the block.
+     * @return A new Block holding the stored fields and hash.
+     */
+    @Override
+    public Block get(int i) {
+        checkIndex(i);
+        ByteBuffer page = headerPages.get(i / headersPerPage);
+        int at = (i % headersPerPage) * HEADER_SIZE;
+        // Only absolute reads, so several threads can read at once.
+        byte[] hash = new byte[32];
+        page.get(at + HASH, hash);
+        ByteBuffer payload = payload(page.getLong(at + PAYLOAD_AT), page.getInt(at + PAYLOAD_LENGTH));
+        byte[] previousHash = BlockCodec.readBytes(payload);
+        int count = payload.getInt();
+        List<String> transactions = new ArrayList<>(count);
+        for (int t = 0; t < count; t++) {
+            transactions.add(BlockCodec.readString(payload));
+        }
+        return Block.fromRaw(page.getInt(at + INDEX), page.getLong(at + TIMESTAMP), transactions,
+                previousHash, page.getLong(at + NONCE), page.getInt(at + DIFFICULTY), hash);
+    }
+    /**
+     * Appends a block.
+     * @param blk The block to append.
+     */
+    @Override
+    public void add(Block blk) {
+        checkWritable();
+        // Start a new header page when the last one is full.
+        if (size == headerPages.size() * headersPerPage) {
+            headerPages.add(ByteBuffer.allocateDirect(headersPerPage * HEADER_SIZE));
+        }
+        size++;
+        write(size - 1, blk, true);
+    }
+    /**
+     * Replaces a block.
+     * @param i The position of the block.
+     * @param blk The new block.
+     */
+    @Override
+    public void set(int i, Block blk) {
+        checkWritable();
+        checkIndex(i);
+        write(i, blk, false);
+    }
+    /**
+     * Stores a changed view again.
+     * @param i The position the view was read from.
+     * @param blk The changed view.
+     */
+    @Override
+    public void writeBack(int i, Block blk) {
+        set(i, blk);
+    }
+    /**
+     * Reads the difficulty of a block straight from its header.
+     * @param i The position of the block.
+     * @return The difficulty of the block.
+     */
+    @Override
+    public int getDifficulty(int i) {
+        checkIndex(i);
+        return headerPages.get(i / headersPerPage).getInt((i % headersPerPage) * HEADER_SIZE + DIFFICULTY);
+    }
+    /**
+     * Takes a view sharing the pages, up to the current size. Later appends only write
+     * headers and payloads past what the view can reach, so the view stays readable
+     * without copying a page.
+     * @return A read-only view of the current blocks.
+     */
+    @Override
+    public BlockStore view() {
+        return new OffHeapBlockStore(this);
+    }
+    /**
+     * Removes every block and drops the pages.
+     */
+    @Override
+    public void clear() {
+        headerPages.clear();
+        payloadPages.clear();
+        currentPayloadPage = -1;
+        payloadFill = 0;
+        size = 0;
+    }
+    /**
+     * Describes the store.
+     * @return The number of pages and the off-heap memory they take.
+     */
+    @Override
+    public String describe() {
+        long bytes = 0;
+        for (ByteBuffer page : headerPages) {
+            bytes += page.capacity();
+        }
+        for (ByteBuffer page : payloadPages) {
+            bytes += page.capacity();
+        }
+        return String.format("off-heap, %d header pages and %d payload pages, %,d bytes",
+                headerPages.size(), payloadPages.size(), bytes);
+    }
+    /**
+     * Writes the header and payload of a block.
+     * @param i The position of the block.
+     * @param blk The block to write.
+     * @param fresh True if the position has no payload yet.
+     */
+    private void write(int i, Block blk, boolean fresh) {
+        ByteBuffer page = headerPages.get(i / headersPerPage);
+        int at = (i % headersPerPage) * HEADER_SIZE;
+        byte[] payload = encodePayload(blk);
+        // Reuse the old payload space if the new payload fits, otherwise append it.
+        if (fresh || payload.length > page.getInt(at + PAYLOAD_LENGTH)) {
+            page.putLong(at + PAYLOAD_AT, appendPayload(payload));
+        } else {
+            payload(page.getLong(at + PAYLOAD_AT), payload.length).put(payload);
+        }
+        page.putInt(at + PAYLOAD_LENGTH, payload.length);
+        page.putLong(at + TIMESTAMP, blk.timestampMillis());
+        page.putLong(at + NONCE, blk.nonceValue());
+        page.putInt(at + INDEX, blk.getIndex());
+        page.putInt(at + DIFFICULTY, blk.getDifficulty());
+        page.put(at + HASH, blk.hashBytes());
+    }
+    /**
+     * Appends a payload to the payload pages.
+     * @param payload The payload bytes.
+     * @return The location of the payload, the page number in the high and the offset in the low 32 bits.
+     */
+    private long appendPayload(byte[] payload) {
+        // A payload larger than a page gets a page of its own.
+        if (payload.length > pageSize) {
+            payloadPages.add(ByteBuffer.allocateDirect(payload.length).put(0, payload));
+            return (long) (payloadPages.size() - 1) << 32;
+        }
+        // Start a new page when the payload does not fit in the current one.
+        if (currentPayloadPage < 0 || payloadFill + payload.length > pageSize) {
+            payloadPages.add(ByteBuffer.allocateDirect(pageSize));
+            currentPayloadPage = payloadPages.size() - 1;
+            payloadFill = 0;
+        }
+        payloadPages.get(currentPayloadPage).put(payloadFill, payload);
+        long location = ((long) currentPayloadPage << 32) | payloadFill;
+        payloadFill += payload.length;
+        return location;
+    }
+    /**
+     * Views a stored payload.
+     * @param location The location of the payload.
+     * @param length The length of the payload.
+     * @return A buffer over the payload, positioned at its start.
+     */
+    private ByteBuffer payload(long location, int length) {
+        return payloadPages.get((int) (location >>> 32)).slice((int) location, length);
+    }
+    /**
+     * Encodes the previous hash and the transactions of a block.
+     * @param blk The block to encode.
+     * @return The payload bytes.
+     */
+    private static byte[] encodePayload(Block blk) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            BlockCodec.writeBytes(out, blk.previousHashBytes());
+            out.writeInt(blk.getData().size());
+            for (String tx : blk.getData()) {
+                BlockCodec.writeString(out, tx);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return bytes.toByteArray();
+    }
+    /**
+     * Checks that the store is not a view sharing the pages of another store.
+     */
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Read-only view of a block store");
+        }
+    }
+    /**
+     * Checks that a position holds a block.
+     * @param i The position to check.
+     */
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + size);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Multi-core proof-of-work engine for blocks.
+ * The nonce space is split across a pool of worker threads, worker w trying the nonces
+ * w, w + threads, w + 2 * threads, ... so no two workers ever test the same nonce.
+ * As soon as one worker finds a hash that meets the block's target string every other
+ * worker stops, and the winning nonce is handed back to the block.
+ */
+// Imports for necessary libraries and classes
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+class ParallelMiner {
+    // Number of worker threads used for mining.
+    private final int threads;
+    // Pool the mining workers run on.
+    private final ForkJoinPool pool;
+    /**
+     * Constructs a new parallel miner.
+     * @param threads The number of worker threads to mine with, at least 1.
+     */
+    public ParallelMiner(int threads) {
+        // Never run with less than one worker.
+        this.threads = Math.max(1, threads);
+        // Create a pool sized to the number of workers.
+        this.pool = new ForkJoinPool(this.threads);
+    }
+    /**
+     * Getter for the number of worker threads.
+     * @return The number of worker threads.
+     */
+    public int getThreads() {
+        return threads;
+    }
+    /**
+     * Searches the nonce space of the block in parallel.
+     * The block itself is not modified, see Block.proofOfWork(ParallelMiner).
+     * @param block The block to mine.
+     * @return A nonce for which the block's hash meets its target string.
+     */
+    public BigInteger findNonce(Block block) {
+        return findNonce(block, MiningBudget.unlimited());
+    }
+    /**
+     * Searches the nonce space of the block in parallel until a valid nonce is
+     * found or the budget runs out. The block itself is not modified.
+     * @param block The block to mine.
+     * @param budget The limits of the search, also used to report its progress.
+     * @return A nonce for which the block's hash meets its target string,
+     *         or null if the budget ran out first.
+     */
+    public BigInteger findNonce(Block block, MiningBudget budget) {
+        // Start the clock of the budget.
+        budget.start();
+        // Flag raised once every worker should stop.
+        AtomicBoolean found = new AtomicBoolean(false);
+        // Holder for the winning nonce, negative until one is found.
+        AtomicLong winner = new AtomicLong(-1);
+        // Build one task per worker, each starting at its own offset.
+        List<Callable<Void>> workers = new ArrayList<>(threads);
+        for (int w = 0; w < threads; w++) {
+            long start = w;
+            workers.add(() -> {
+                // Every worker hashes the block prefix once into its own kernel.
+                MiningKernel kernel = new MiningKernel(block);
+                long nonce = start;
+                // Hashes tried since the budget was last checked.
+                int sinceCheck = 0;
+                // Keep going until this or another worker finds a valid hash.
+                while (!found.get()) {
+                    if (kernel.tryNonce(nonce)) {
+                        // Only the first finder gets to publish its nonce.
+                        if (found.compareAndSet(false, true)) {
+                            winner.set(nonce);
+                        }
+                        break;
+                    }
+                    nonce += threads;
+                    // Stop every worker once the budget runs out.
+                    if (++sinceCheck == MiningBudget.CHECK_INTERVAL) {
+                        sinceCheck = 0;
+                        if (!budget.record(MiningBudget.CHECK_INTERVAL)) {
+                            found.set(true);
+                        }
+                    }
+                }
+                // Count the hashes tried since the last check.
+                budget.record(sinceCheck);
+                return null;
+            });
+        }
+        // Run all workers and wait until every one of them has stopped.
+        for (Future<Void> future : pool.invokeAll(workers)) {
+            try {
+                future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        // Return the winning nonce, if any worker found one.
+        return winner.get() < 0 ? null : BigInteger.valueOf(winner.get());
+    }
+    /**
+     * Measures the combined hash rate of all workers, using the same benchmark
+     * as BlockChain.computeHashesPerSecond() split evenly across the workers.
+     * @return The approximate number of hashes per second over all workers.
+     */
+    public int measureHashesPerSecond() {
+        // Total number of hashes to compute for the benchmark.
+        int total = 2000000;
+        // Share of the benchmark each worker computes.
+        int share = total / threads;
+        List<Callable<Void>> workers = new ArrayList<>(threads);
+        for (int w = 0; w < threads; w++) {
+            workers.add(() -> {
+                // Every worker needs its own MessageDigest instance.
+                MessageDigest md;
+                try {
+                    md = MessageDigest.getInstance("SHA-256");
+                } catch (NoSuchAlgorithmException e) {
+                    throw new RuntimeException(e);
+                }
+                // Hash the same data as the single threaded benchmark.
+                md.update("00000000".getBytes());
+                for (int i = 0; i < share; i++) {
+                    md.digest();
+                }
+                return null;
+            });
+        }
+        // Record the start time of the benchmark.
+        long startTime = System.currentTimeMillis();
+        for (Future<Void> future : pool.invokeAll(workers)) {
+            try {
+                future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        // Record the end time of the benchmark, at least one millisecond later.
+        long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+        // Convert the hashes computed into hashes per second.
+        return (int) ((long) share * threads * 1000 / elapsed);
+    }
+    /**
+     * Stops the worker pool.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
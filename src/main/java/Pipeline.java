@@ -0,0 +1,97 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Carries out the requests of one connection, letting pipelined requests overtake each other.
+ * A request with a request ID runs on its own task, and its response is sent as soon as it is
+ * done, so a quick getBasicView does not wait behind a slow repairChain sent before it. The
+ * response carries the request ID for the client to match it. A request without an ID runs
+ * right away on the calling thread, exactly like the lock-step protocol always did.
+ * At most a fixed number of requests of a connection run at once; the connection's reader
+ * waits for a slot, which stops it reading and pushes back on a client that sends too fast.
+ * clientExit waits for every running request of the connection before it is answered, and
+ * setCompression also runs on the reader, so the connection can switch over right after it.
+ */
+// Imports for necessary libraries and classes
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+class Pipeline {
+    // Default maximum number of requests of one connection running at once.
+    static final int DEFAULT_MAX_IN_FLIGHT = 64;
+    // Processor carrying out the requests.
+    private final RequestProcessor processor;
+    // Executor running the pipelined requests.
+    private final Executor executor;
+    // Maximum number of requests running at once.
+    private final int maxInFlight;
+    // One permit per request that may still start.
+    private final Semaphore slots;
+    // Sends the response of a pipelined request, from any thread.
+    private final Consumer<ResponseMessage> reply;
+    /**
+     * Constructs the pipeline of a connection.
+     * @param processor The processor carrying out the requests.
+     * @param executor The executor running the pipelined requests. It must not be the thread
+     *                 pool the caller runs on, or a full pipeline could wait for itself.
+     * @param maxInFlight The maximum number of requests running at once.
+     * @param reply Sends the response of a pipelined request; must be thread safe.
+     */
+    public Pipeline(RequestProcessor processor, Executor executor, int maxInFlight, Consumer<ResponseMessage> reply) {
+        this.processor = processor;
+        this.executor = executor;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.slots = new Semaphore(this.maxInFlight);
+        this.reply = reply;
+    }
+    /**
+     * Carries out a request of the connection. Called by the connection's reader, one request at a time.
+     * @param request The request from the client.
+     * @return The response of a request carried out right away, or null if the request was
+     *         pipelined and its response will go through the reply callback.
+     */
+    public ResponseMessage submit(RequestMessage request) {
+        // Requests that change the connection itself run in order on the reader, pipelined or not.
+        if (request.getRequestId() == null || "clientExit".equals(request.getRequestType())
+                || "setCompression".equals(request.getRequestType())) {
+            if ("clientExit".equals(request.getRequestType())) {
+                // Let every running request finish first.
+                slots.acquireUninterruptibly(maxInFlight);
+                slots.release(maxInFlight);
+            }
+            return processor.process(request);
+        }
+        slots.acquireUninterruptibly();
+        try {
+            executor.execute(() -> {
+                try {
+                    reply.accept(processOrFail(request));
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+        return null;
+    }
+    /**
+     * Carries out a pipelined request, answering a malformed one with an error. Unlike a
+     * lock-step request it cannot drop the connection, which other requests are still using.
+     * @param request The request from the client.
+     * @return The response to send back.
+     */
+    private ResponseMessage processOrFail(RequestMessage request) {
+        try {
+            return processor.process(request);
+        } catch (RuntimeException e) {
+            ResponseMessage response = new ResponseMessage();
+            response.setRequestId(request.getRequestId());
+            response.setResponseType("Error");
+            response.setResponse("Error in request: " + e);
+            return response;
+        }
+    }
+}
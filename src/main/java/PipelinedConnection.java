@@ -0,0 +1,93 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Client side of a connection that keeps many requests in flight at once.
+ * Every request gets the next request ID of the connection and a future, and is written
+ * without waiting for earlier responses. A background reader completes the future whose ID
+ * a response carries, in whatever order the server finishes the requests.
+ * If the connection breaks, every outstanding future fails with the cause.
+ */
+// Imports for necessary libraries and classes
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+class PipelinedConnection {
+    // Codec of the connection.
+    private final MessageCodec codec;
+    // Identifier of the next request.
+    private final AtomicLong nextId = new AtomicLong(1);
+    // Futures of the requests sent and not answered yet, by request ID.
+    private final ConcurrentHashMap<Long, CompletableFuture<ResponseMessage>> pending = new ConcurrentHashMap<>();
+    // Cause of the broken connection, or null while it works.
+    private volatile IOException failure;
+    /**
+     * Wraps a connection and starts reading its responses in the background.
+     * @param codec The codec of the connection, used by this object only from now on.
+     */
+    public PipelinedConnection(MessageCodec codec) {
+        this.codec = codec;
+        Thread reader = new Thread(this::readResponses, "response-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+    /**
+     * Sends a signed request without waiting for the response.
+     * The request ID is not covered by the signature, so the request can be signed first.
+     * @param request The signed request.
+     * @return The future of the response.
+     */
+    public CompletableFuture<ResponseMessage> send(RequestMessage request) {
+        CompletableFuture<ResponseMessage> future = new CompletableFuture<>();
+        long id = nextId.getAndIncrement();
+        request.setRequestId(id);
+        pending.put(id, future);
+        try {
+            synchronized (codec) {
+                if (failure != null) {
+                    throw failure;
+                }
+                codec.write(request);
+            }
+        } catch (IOException e) {
+            pending.remove(id);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+    /**
+     * Sets how the requests sent from now on are compressed, once the server agreed to it.
+     * @param compression The compressor, or null to send requests as they are.
+     */
+    public void setCompression(FrameCompression compression) {
+        synchronized (codec) {
+            codec.setCompression(compression);
+        }
+    }
+    /**
+     * Completes the futures of the responses as they arrive, until the connection closes.
+     */
+    private void readResponses() {
+        try {
+            while (true) {
+                ResponseMessage response = codec.read(ResponseMessage.class);
+                CompletableFuture<ResponseMessage> future =
+                        response.getRequestId() == null ? null : pending.remove(response.getRequestId());
+                if (future != null) {
+                    future.complete(response);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Fail every request still waiting, and any sent from now on.
+            failure = e instanceof IOException ? (IOException) e : new IOException(e);
+            for (Long id : pending.keySet()) {
+                CompletableFuture<ResponseMessage> future = pending.remove(id);
+                if (future != null) {
+                    future.completeExceptionally(failure);
+                }
+            }
+        }
+    }
+}
@@ -7,6 +7,7 @@
  */
 // Import for handling large integers.
 import java.math.BigInteger;
+import java.util.List;
 
 class RequestMessage {
     private String clientID; // Client ID associated with the request.
@@ -16,6 +17,9 @@ class RequestMessage {
     private String var1; // Variable 1.
     private String var2; // Variable 2.
     private String signature; // Signature of the request.
+    private transient BigInteger signatureValue; // Signature as a number, once decoded or parsed; JSON carries the text.
+    private Long requestId; // Identifier echoed in the response, or null for a lock-step request.
+    private List<RequestMessage> operations; // Operations of a batch request, each with only a type and variables.
     /**
      * Getter for the request type.
      * @return The request type.
@@ -42,8 +46,23 @@ class RequestMessage {
      * @return The request signature.
      */
     public String getSignature() {
+        // A signature that arrived as a number is only written out as text when asked for.
+        if (signature == null && signatureValue != null) {
+            signature = signatureValue.toString();
+        }
         return signature;
     }
+    /**
+     * Getter for the request signature as a number, parsing the text at most once.
+     * @return The signature, or null if the request has none.
+     * @throws NumberFormatException If the signature is not a decimal number.
+     */
+    public BigInteger getSignatureValue() {
+        if (signatureValue == null && signature != null) {
+            signatureValue = new BigInteger(signature);
+        }
+        return signatureValue;
+    }
     /**
      * Getter for the client ID.
      * @return The client ID.
@@ -65,6 +84,20 @@ class RequestMessage {
     public BigInteger getN() {
         return n;
     }
+    /**
+     * Getter for the request ID.
+     * @return The request ID, or null if the request is not pipelined.
+     */
+    public Long getRequestId() {
+        return requestId;
+    }
+    /**
+     * Getter for the operations of a batch request.
+     * @return The operations, or null if the request is not a batch.
+     */
+    public List<RequestMessage> getOperations() {
+        return operations;
+    }
     /**
      * Setter for the request type.
      * @param requestType The request type to set.
@@ -99,6 +132,15 @@ class RequestMessage {
      */
     public void setSignature(String signature) {
         this.signature = signature;
+        this.signatureValue = null;
+    }
+    /**
+     * Setter for the request signature as a number, as the binary protocol carries it.
+     * @param signatureValue The signature to set.
+     */
+    public void setSignatureValue(BigInteger signatureValue) {
+        this.signatureValue = signatureValue;
+        this.signature = null;
     }
     /**
      * Setter for 'e'.
@@ -114,4 +156,51 @@ class RequestMessage {
     public void setN(BigInteger n) {
         this.n = n;
     }
+    /**
+     * Setter for the request ID.
+     * @param requestId The request ID to set, chosen by the client and unique on its connection.
+     */
+    public void setRequestId(Long requestId) {
+        this.requestId = requestId;
+    }
+    /**
+     * Setter for the operations of a batch request.
+     * @param operations The operations to carry out in order, each with only a type and variables set.
+     */
+    public void setOperations(List<RequestMessage> operations) {
+        this.operations = operations;
+    }
+    /**
+     * Builds the text the client signs and the server verifies. It is the client ID, the key,
+     * the request type and both variables, concatenated. A batch request appends every
+     * operation's type and variables, each written as its length, a colon and its characters,
+     * or as "-1:" if it is null, so no two different batches have the same text.
+     * The request ID is left out, the client may set it after signing.
+     * @return The text to sign.
+     */
+    public String signedText() {
+        StringBuilder text = new StringBuilder();
+        text.append(clientID).append(e).append(n).append(requestType).append(var1).append(var2);
+        if (operations != null) {
+            for (RequestMessage operation : operations) {
+                text.append('\n');
+                appendField(text, operation == null ? null : operation.getRequestType());
+                appendField(text, operation == null ? null : operation.getVar1());
+                appendField(text, operation == null ? null : operation.getVar2());
+            }
+        }
+        return text.toString();
+    }
+    /**
+     * Appends one field of a batch operation to the signed text, prefixed with its length.
+     * @param text The signed text being built.
+     * @param field The field, possibly null.
+     */
+    private static void appendField(StringBuilder text, String field) {
+        if (field == null) {
+            text.append("-1:");
+        } else {
+            text.append(field.length()).append(':').append(field);
+        }
+    }
 }
@@ -0,0 +1,466 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Carries out the requests of the blockchain server's clients.
+ * Every request has its signature and client ID checked, then runs against the chain.
+ * Requests that change the chain are handed to the MiningService, which runs them one
+ * after another on its single thread, while reads go straight to the chain under its
+ * read lock. One processor can therefore serve any number of connections at once.
+ * A batch request carries many operations under a single signature, so a client submitting
+ * thousands of transactions pays for one RSA verification instead of one per transaction.
+ */
+// Imports for necessary libraries and classes
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+class RequestProcessor {
+    // Number of matching blocks returned per searchTransactions request.
+    private static final int SEARCH_PAGE_SIZE = 100;
+    // Number of blocks returned per getFullView request unless the client asks for another page size.
+    private static final int VIEW_PAGE_SIZE = 100;
+    // Largest page of blocks a getFullView request may ask for.
+    private static final int MAX_VIEW_PAGE_SIZE = 1000;
+    // Chain the requests read and change.
+    private final BlockChain myChain;
+    // Background block producer that runs every change to the chain.
+    private final MiningService miningService;
+    /**
+     * Constructs a request processor.
+     * @param myChain The chain the requests read and change.
+     * @param miningService The block producer that runs every change to the chain.
+     */
+    public RequestProcessor(BlockChain myChain, MiningService miningService) {
+        this.myChain = myChain;
+        this.miningService = miningService;
+    }
+    /**
+     * Checks the signature of a request and carries it out. A batch request has its one
+     * signature checked once and then carries out every operation it holds.
+     * @param request The request from the client.
+     * @return The response to send back.
+     */
+    public ResponseMessage process(RequestMessage request) {
+        // Create a response message object, tagged like the request so a pipelining client can match it
+        ResponseMessage response = new ResponseMessage();
+        response.setRequestId(request.getRequestId());
+        // Decide once whether this request is logged, by the sampling rate of its type
+        boolean logged = ServerLog.sampled(request.getRequestType());
+        if (logged) {
+            // Log the visitor and its public key; the key and the payload are only formatted by the log writer
+            ServerLog.info("request", "type", request.getRequestType(), "id", request.getRequestId(), "client", request.getClientID());
+            ServerLog.debug("visitorKey", "e", request.getE(), "n", request.getN());
+            ServerLog.debug("requestPayload", "json", request);
+        }
+        // Check if the request signature is valid
+        if (!checkSign(request)) {
+            // Log the verification failure, whatever the sampling
+            ServerLog.warn("verificationFailed", "type", request.getRequestType(), "id", request.getRequestId(), "client", request.getClientID());
+            // Set response type to error
+            response.setResponseType("Error");
+            // Set error response
+            response.setResponse("Error in request, Verification Failed");
+            // Reply with the error without carrying the request out
+            return response;
+        }
+        if ("batch".equals(request.getRequestType())) {
+            // Carry out every operation of the batch under the one signature just checked
+            response = executeBatch(request.getOperations());
+        } else {
+            // Carry out the single operation of the request
+            response = execute(request);
+        }
+        response.setRequestId(request.getRequestId());
+        if (logged) {
+            // Log the response and the number of blocks on the chain
+            ServerLog.info("response", "type", response.getResponseType(), "id", response.getRequestId(), "chainSize", myChain.getChainSize());
+            ServerLog.debug("responsePayload", "text", response.getResponse(),
+                    "results", response.getResults() == null ? 0 : response.getResults().size(),
+                    "blocks", response.getBlocks() == null ? 0 : response.getBlocks().size());
+        }
+        return response;
+    }
+
+    /**
+     * Carries out one operation whose signature was already checked.
+     * @param request The operation, of which only the type and the variables are used.
+     * @return The response to the operation.
+     */
+    private ResponseMessage execute(RequestMessage request) {
+        // Create a response message object
+        ResponseMessage response = new ResponseMessage();
+        // Initialize a string for response
+        String resStr = "";
+        // Check the type of request
+        switch (request.getRequestType()) {
+            // If request is to get basic view
+            case "getBasicView":
+                // Construct the response string with chain information
+                resStr += "Current size of chain: " + myChain.getChainSize();
+                resStr += "\nDifficulty of most recent block: " + myChain.getLatestBlock().getDifficulty();
+                resStr += "\nTotal difficulty for all blocks: " + myChain.getTotalDifficulty();
+                resStr += "\nLowest difficulty of any block: " + myChain.getMinDifficulty();
+                resStr += "\nHighest difficulty of any block: " + myChain.getMaxDifficulty();
+                resStr += "\nBlocks per difficulty: " + myChain.getDifficultyHistogram();
+                resStr += "\nExperimented with 2,000,000 hashes.";
+                resStr += "\nApproximate hashes per second on this machine: " + myChain.getHashesPerSecond();
+                resStr += "\nMining threads: " + myChain.getMiningThreads();
+                resStr += "\nApproximate parallel hashes per second on this machine: " + myChain.getParallelHashesPerSecond();
+                resStr += "\nParallel mining speedup: " + String.format("%.2f", (double) myChain.getParallelHashesPerSecond() / myChain.getHashesPerSecond()) + "x";
+                resStr += "\nExpected total hashes required for the whole chain: " + myChain.getTotalExpectedHashes();
+                resStr += "\nBlock storage: " + myChain.describeStorage();
+                resStr += "\nTransaction index: " + myChain.describeTransactionIndex();
+                resStr += "\nTransactions waiting in the mempool: " + miningService.getPendingCount();
+                resStr += "\nFrame compression: " + FrameCompression.describeTotals();
+                resStr += "\nNonce for most recent block: " + myChain.getLatestBlock().getNonce();
+                resStr += "\nChain hash: " + myChain.getChainHash();
+                // Set the response type in the response message
+                response.setResponseType(request.getRequestType());
+                // Set the response message
+                response.setResponse(resStr);
+                // Break out of the switch statement
+                break;
+            case "addBlock":
+                // Extract transaction and difficulty from the request
+                String tx = request.getVar2();
+                int diff = Integer.parseInt(request.getVar1());
+                // Reject a request without a transaction instead of queueing nothing
+                if (tx == null) {
+                    response.setResponseType("Error");
+                    response.setResponse("Please enter a transaction");
+                    break;
+                }
+                // Reject a difficulty no hash can meet before it reaches the shared miner
+                if (diff < 0 || diff > Block.MAX_DIFFICULTY) {
+                    response.setResponseType("Error");
+                    response.setResponse("Please enter a difficulty from 0 to " + Block.MAX_DIFFICULTY);
+                    break;
+                }
+                // Queue the transaction in the mempool, unless it is full
+                MiningTicket ticket;
+                try {
+                    ticket = miningService.submit(tx, diff);
+                } catch (IllegalStateException e) {
+                    response.setResponseType("Error");
+                    response.setResponse("The mempool is full, please try again later");
+                    break;
+                }
+                // Set the response type in the response message
+                response.setResponseType(request.getRequestType());
+                // Set the response message with the ticket to follow the transaction
+                response.setResponse("Transaction queued for mining, ticket: " + ticket.getId());
+                // Break out of the switch statement
+                break;
+            case "getTicketStatus":
+                // Look up the ticket given in the request
+                MiningTicket status = miningService.getTicket(Long.parseLong(request.getVar1()));
+                // Set the response type in the response message
+                response.setResponseType(request.getRequestType());
+                // Set the response message to the ticket status
+                response.setResponse(status == null ? "Unknown or expired ticket " + request.getVar1() : status.describe());
+                // Break out of the switch statement
+                break;
+            case "cancelTicket":
+                // Cancel the ticket given in the request
+                MiningTicket cancelled = miningService.cancel(Long.parseLong(request.getVar1()));
+                // Set the response type in the response message
+                response.setResponseType(request.getRequestType());
+                // Set the response message to the ticket status
+                response.setResponse(cancelled == null ? "Unknown or expired ticket " + request.getVar1()
+                        : "Cancellation requested\n" + cancelled.describe());
+                // Break out of the switch statement
+                break;
+            case "getInclusionProof":
+                // Extract block ID and transaction from the request
+                int proofId = Integer.parseInt(request.getVar1());
+                // Set the response type in the response message
+                response.setResponseType(request.getRequestType());
+                // If the provided block ID is invalid
+                if (proofId < 0 || proofId > myChain.getChainSize() - 1) {
+                    response.setResponse("Please enter valid ID");
+                } else {
+                    // Build the proof, if the block holds the transaction
+                    MerkleTree.Proof proof = myChain.getInclusionProof(proofId, request.getVar2());
+                    response.setResponse(proof == null ? "Block " + proofId + " does not hold " + request.getVar2()
+                            : MessageCodec.GSON.toJson(proof));
+                }
+                // Break out of the switch statement
+                break;
+            case "getRangeStats":
+                // Extract the block range from the request
+                int from = Integer.parseInt(request.getVar1());
+                int to = Integer.parseInt(request.getVar2());
+                // Set the response type in the response message
+                response.setResponseType(request.getRequestType());
+                // Set the response message to the range statistics, if the range is valid
+                response.setResponse(from < 0 || from > to || to > myChain.getChainSize() - 1
+                        ? "Please enter a valid range" : myChain.describeRange(from, to));
+                // Break out of the switch statement
+                break;
+            case "getBlockByHash":
+                // Set the response type in the response message
+                response.setResponseType(request.getRequestType());
+                // Look the block up in the hash index
+                Block byHash = request.getVar1() == null ? null : myChain.findBlockByHash(request.getVar1());
+                response.setResponse(byHash == null ? "No block has hash " + request.getVar1() : byHash.toString());
+                // Break out of the switch statement
+                break;
+            case "getBlocksByTimeRange":
+                // Set the response type in the response message
+                response.setResponseType(request.getRequestType());
+                try {
+                    // Look the blocks up in the timestamp index
+                    List<Block> inRange = myChain.findBlocksByTimeRange(parseTime(request.getVar1()), parseTime(request.getVar2()));
+                    response.setResponse(Block.JSON.toJson(inRange));
+                } catch (IllegalArgumentException | NullPointerException e) {
+                    response.setResponse("Please enter a valid time range");
+                }
+                // Break out of the switch statement
+                break;
+            case "searchTransactions":
+                // Set the response type in the response message
+                response.setResponseType(request.getRequestType());
+                try {
+                    // Look the words up in the transaction index, one page at a time
+                    int skip = request.getVar2() == null ? 0 : Integer.parseInt(request.getVar2());
+                    TransactionIndex.Page page = myChain.searchTransactions(request.getVar1(), skip, SEARCH_PAGE_SIZE);
+                    String found = page.total + " matching blocks";
+                    if (!page.blocks.isEmpty()) {
+                        found += ", blocks " + page.blocks + " starting at match " + skip;
+                    }
+                    if (skip + page.blocks.size() < page.total) {
+                        found += "\nNext offset: " + (skip + page.blocks.size());
+                    }
+                    if (page.notIndexed) {
+                        found += "\nA word of the query is not indexed, the blocks holding it cannot be searched for";
+                    }
+                    response.setResponse(found + "\nTransaction index: " + myChain.describeTransactionIndex());
+                } catch (IllegalArgumentException | NullPointerException e) {
+                    response.setResponse("Please enter a search query and a valid offset");
+                }
+                // Break out of the switch statement
+                break;
+            case "verifyChain":
+                // Verify the integrity of the blockchain, all of it for a "full" audit,
+                // on all cores for a "parallel" one
+                String res = "parallel".equals(request.getVar1()) ? myChain.isChainValidParallel()
+                        : myChain.isChainValid("full".equals(request.getVar1()));
+                // Set the response type in the response message
+                response.setResponseType(request.getRequestType());
+                // Set the response message
+                response.setResponse(res);
+                // Break out of the switch statement
+                break;
+            case "getFullView":
+                // Set the response type in the response message
+                response.setResponseType(request.getRequestType());
+                try {
+                    // Send the blocks from the given index on, one page at a time; the index of
+                    // the next page doubles as a cursor for fetching only the blocks added since
+                    int first = request.getVar1() == null ? 0 : Integer.parseInt(request.getVar1());
+                    int pageSize = request.getVar2() == null ? VIEW_PAGE_SIZE
+                            : Math.min(MAX_VIEW_PAGE_SIZE, Integer.parseInt(request.getVar2()));
+                    int size = myChain.getChainSize();
+                    if (first < 0 || pageSize < 1) {
+                        throw new IllegalArgumentException();
+                    }
+                    int last = Math.min(size, first + pageSize);
+                    // The blocks are written to the connection as the response is sent
+                    response.setBlocks(new BlockPage(myChain, Math.min(first, last), last));
+                    String view = first < last ? "Blocks " + first + " to " + (last - 1) + " of " + size
+                            : "No blocks from " + first + " on, the chain has " + size;
+                    response.setResponse(view + "\nNext index: " + last + "\nChain hash: " + myChain.getChainHash());
+                } catch (IllegalArgumentException e) {
+                    response.setResponse("Please enter a valid first block and page size");
+                }
+                // Break out of the switch statement
+                break;
+            case "corruptChain":
+                // Extract new transaction and block ID from the request
+                String newTx = request.getVar2();
+                int id = Integer.parseInt(request.getVar1());
+                // Set the response type in the response message
+                response.setResponseType(request.getRequestType());
+                // If the provided block ID is invalid
+                if (id < 0 || id > myChain.getChainSize() - 1) {
+                    // Set an error response
+                    response.setResponse("Please enter valid ID");
+                    // Break out of the switch statement
+                    break;
+                }
+                // Modify the data of the specified block after all queued blocks are mined
+                miningService.runExclusive(() -> {
+                    myChain.getBlock(id).setData(newTx);
+                    return null;
+                });
+                // Set the response message
+                response.setResponse("Block " + id + " now holds " + myChain.getBlock(id).getData());
+                // Break out of the switch statement
+                break;
+            case "repairChain":
+                // Repair the blockchain after all queued blocks are mined, mining outside the chain's lock
+                miningService.runSerialized(() -> {
+                    myChain.repairChain();
+                    return null;
+                });
+                // Set the response type in the response message
+                response.setResponseType(request.getRequestType());
+                // Set the response message
+                response.setResponse("Repaired Successfully");
+                // Break out of the switch statement
+                break;
+            case "setCompression":
+                try {
+                    // Check the settings; the connection turns compression on once this response is out
+                    FrameCompression settings = FrameCompression.parse(request.getVar1(), request.getVar2());
+                    response.setResponseType(request.getRequestType());
+                    response.setResponse(FrameCompression.describe(settings));
+                } catch (IllegalArgumentException e) {
+                    response.setResponseType("Error");
+                    response.setResponse("Please enter deflate, gzip or none, and a valid threshold in bytes");
+                }
+                // Break out of the switch statement
+                break;
+            case "clientExit":
+                // Set the response type in the response message
+                response.setResponseType(request.getRequestType());
+                // Set the response message
+                response.setResponse("Ack. Server awaiting new Client :)");
+                // Break out of the switch statement
+                break;
+        }
+        return response;
+    }
+
+    /**
+     * Carries out the operations of a batch one after another, in order. An operation that
+     * fails gets an error result and the following ones still run, like separate requests would.
+     * @param operations The operations of the batch.
+     * @return The response holding one result per operation, in the same order.
+     */
+    private ResponseMessage executeBatch(List<RequestMessage> operations) {
+        ResponseMessage response = new ResponseMessage();
+        response.setResponseType("batch");
+        if (operations == null) {
+            response.setResponse("Please send the operations of the batch");
+            return response;
+        }
+        ServerLog.debug("batch", "operations", operations.size());
+        List<ResponseMessage> results = new ArrayList<>(operations.size());
+        int failed = 0;
+        for (RequestMessage operation : operations) {
+            ResponseMessage result;
+            String type = operation == null ? null : operation.getRequestType();
+            if (type == null || "batch".equals(type) || "clientExit".equals(type) || "setCompression".equals(type)) {
+                // Batches do not nest, and requests about the connection itself must come on their own
+                result = new ResponseMessage();
+                result.setResponseType("Error");
+                result.setResponse("Operation " + type + " is not allowed in a batch");
+            } else {
+                try {
+                    result = execute(operation);
+                } catch (RuntimeException e) {
+                    result = new ResponseMessage();
+                    result.setResponseType("Error");
+                    result.setResponse("Error in operation: " + e);
+                }
+            }
+            failed += "Error".equals(result.getResponseType()) ? 1 : 0;
+            results.add(result);
+        }
+        response.setResults(results);
+        response.setResponse(operations.size() + " operations carried out, " + failed + " failed");
+        return response;
+    }
+
+    /**
+     * Checks the signature of the request message.
+     * @param request The request message to check.
+     * @return True if the signature is valid, false otherwise.
+     */
+    private static boolean checkSign(RequestMessage request) {
+        // Check if the client ID is valid
+        if (!checkClientID(request.getE(), request.getN(), request.getClientID())) {
+            return false;
+        }
+        // Verify the signature of the request
+        return verifySign(request);
+    }
+
+    /**
+     * Checks if the provided client ID matches the computed client ID based on public key components.
+     *
+     * @param e        The public exponent.
+     * @param n        The modulus.
+     * @param clientID The client ID to compare against.
+     * @return True if the client ID matches, false otherwise.
+     */
+    private static boolean checkClientID(BigInteger e, BigInteger n, String clientID) {
+        // Initialize a message digest for SHA-256
+        MessageDigest md = null;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException(ex);
+        }
+        // Concatenate e and n, and compute their hash
+        md.update((e.toString() + n.toString()).getBytes());
+        String compID = Block.bytesToHex(md.digest());
+        // Extract the last 20 characters from the computed ID
+        compID = compID.substring(compID.length() - 20);
+        // Compare the computed ID with the provided client ID
+        return compID.equals(clientID);
+    }
+
+    /**
+     * Parses a point in time given either as epoch milliseconds or as "yyyy-mm-dd hh:mm:ss[.f...]".
+     * @param value The time to parse.
+     * @return The time in epoch milliseconds.
+     * @throws IllegalArgumentException If the time is in neither format.
+     */
+    private static long parseTime(String value) {
+        String trimmed = value.trim();
+        return trimmed.matches("\\d+") ? Long.parseLong(trimmed) : Timestamp.valueOf(trimmed).getTime();
+    }
+
+    /**
+     * Verifies the signature of the request message.
+     * @param request The request message containing the signature to verify.
+     * @return True if the signature is valid, false otherwise.
+     * Code taken from project github, url: https://github.com/CMU-Heinz-95702/Project3
+     */
+    private static boolean verifySign(RequestMessage request) {
+        // Take the signature as a number, decoded once from the wire or the JSON text
+        BigInteger encryptedSign = request.getSignatureValue();
+        // Decrypt the signature using the public key components
+        BigInteger decryptedSign = encryptedSign.modPow(request.getE(), request.getN());
+        // Build the signed text of the request for hashing
+        String message = request.signedText();
+        try {
+            // Compute the SHA-256 hash of the message
+            byte[] bytesOfMessage = message.getBytes("UTF-8");
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] messageDigest = md.digest(bytesOfMessage);
+            // Prepare the hash bytes for comparison
+            byte[] extraByte = new byte[3];
+            extraByte[0] = 0;
+            extraByte[1] = messageDigest[0];
+            extraByte[2] = messageDigest[1];
+            // Convert the prepared bytes to BigInteger for comparison
+            BigInteger bigIntegerToCheck = new BigInteger(extraByte);
+            // Check if the computed hash matches the decrypted signature
+            if (bigIntegerToCheck.compareTo(decryptedSign) == 0) {
+                return true;
+            }
+        } catch (UnsupportedEncodingException | NoSuchAlgorithmException e) {
+            ServerLog.error("signatureCheckFailed", "error", e);
+        }
+        // If any exception occurs or verification fails, return false
+        return false;
+    }
+}
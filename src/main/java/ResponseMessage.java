@@ -4,9 +4,15 @@
  *
  * Represents a response message with a type and content.
  */
+// Import for the results of a batch.
+import java.util.List;
+
 public class ResponseMessage {
     private String responseType; // Type of response
     private String response; // Content of the response
+    private Long requestId; // Identifier of the request this responds to, or null
+    private List<ResponseMessage> results; // Results of the operations of a batch, in order, or null
+    private BlockPage blocks; // Page of blocks of a getFullView, or null
     /**
      * Gets the type of response.
      * @return The type of response.
@@ -21,6 +27,27 @@ public class ResponseMessage {
     public String getResponse() {
         return response;
     }
+    /**
+     * Gets the identifier of the request this responds to.
+     * @return The request ID, or null if the request had none.
+     */
+    public Long getRequestId() {
+        return requestId;
+    }
+    /**
+     * Gets the results of the operations of a batch.
+     * @return One result per operation, in the order of the operations, or null if the request was not a batch.
+     */
+    public List<ResponseMessage> getResults() {
+        return results;
+    }
+    /**
+     * Gets the page of blocks of a getFullView.
+     * @return The page of blocks, or null if the response holds none.
+     */
+    public BlockPage getBlocks() {
+        return blocks;
+    }
     /**
      * Sets the type of response.
      * @param responseType The type of response to set.
@@ -35,4 +62,25 @@ public class ResponseMessage {
     public void setResponse(String response) {
         this.response = response;
     }
+    /**
+     * Sets the identifier of the request this responds to.
+     * @param requestId The request ID to set.
+     */
+    public void setRequestId(Long requestId) {
+        this.requestId = requestId;
+    }
+    /**
+     * Sets the results of the operations of a batch.
+     * @param results One result per operation, in the order of the operations.
+     */
+    public void setResults(List<ResponseMessage> results) {
+        this.results = results;
+    }
+    /**
+     * Sets the page of blocks of a getFullView.
+     * @param blocks The page of blocks to send.
+     */
+    public void setBlocks(BlockPage blocks) {
+        this.blocks = blocks;
+    }
 }
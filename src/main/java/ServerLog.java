@@ -0,0 +1,271 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Leveled, structured logging for the server, kept off the request threads.
+ * A request thread only puts a record holding the level, an event name and key-value pairs
+ * on a lock-free queue; a background writer turns records into text and writes them to
+ * standard output, flushing whenever the queue runs empty. Values are formatted on the
+ * writer too, so printing a 4096-bit key or serializing a request to JSON costs the request
+ * nothing. Every value is cut to -Dlog.maxValue characters.
+ * Records below -Dlog.level (ERROR, WARN, INFO or DEBUG, INFO by default) are not queued.
+ * Per-request records can be sampled by request type: with -Dlog.sample.addBlock=100 only one
+ * addBlock request in a hundred is logged, and -Dlog.sample sets the rate of every other type.
+ * Only the types the server knows get a counter of their own; any other type a client sends
+ * shares the "other" counter, whose rate -Dlog.sample.other sets.
+ * If the writer falls -Dlog.queueSize records behind, new INFO and DEBUG records are dropped
+ * and counted rather than holding up the requests. Warnings and errors get some headroom
+ * beyond that, since a client can trigger warnings at will, but past it they are dropped and
+ * counted as well.
+ * A line reads: time, level, event, then key=value pairs, values with spaces being quoted.
+ */
+// Imports for necessary libraries and classes
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+class ServerLog {
+    /**
+     * Severity of a record, most severe first.
+     */
+    enum Level { ERROR, WARN, INFO, DEBUG }
+    /**
+     * One record waiting for the writer.
+     */
+    private static class Record {
+        // Time the record was made, in epoch milliseconds.
+        final long millis = System.currentTimeMillis();
+        // Severity of the record.
+        final Level level;
+        // Name of the event.
+        final String event;
+        // Keys and values, alternating.
+        final Object[] fields;
+        /**
+         * Constructs a record.
+         * @param level The severity of the record.
+         * @param event The name of the event.
+         * @param fields The keys and values, alternating.
+         */
+        Record(Level level, String event, Object[] fields) {
+            this.level = level;
+            this.event = event;
+            this.fields = fields;
+        }
+    }
+    // Least severe level logged.
+    private static final Level LEVEL = Level.valueOf(System.getProperty("log.level", "INFO").toUpperCase());
+    // Longest value written, in characters.
+    private static final int MAX_VALUE = Integer.getInteger("log.maxValue", 512);
+    // Most records waiting for the writer.
+    private static final int QUEUE_SIZE = Integer.getInteger("log.queueSize", 65536);
+    // Most records waiting for the writer, by level: warnings and errors may use some headroom
+    // beyond the queue size, errors more than warnings.
+    private static final int[] LIMITS = {
+            (int) Math.min(Integer.MAX_VALUE, QUEUE_SIZE * 3L / 2),
+            (int) Math.min(Integer.MAX_VALUE, QUEUE_SIZE * 5L / 4),
+            QUEUE_SIZE,
+            QUEUE_SIZE};
+    // Sampling counter shared by every request type the server does not know.
+    private static final String OTHER_TYPE = "other";
+    // One request in this many of a type without a rate of its own is logged.
+    private static final int DEFAULT_SAMPLE = Math.max(1, Integer.getInteger("log.sample", 1));
+    // Records waiting for the writer, and how many.
+    private static final ConcurrentLinkedQueue<Record> queue = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger queued = new AtomicInteger();
+    // Records dropped because the queue was full, not reported yet, by level.
+    private static final AtomicLongArray dropped = new AtomicLongArray(Level.values().length);
+    // Number of requests seen so far of each known type, for sampling.
+    private static final ConcurrentHashMap<String, AtomicLong> seen = new ConcurrentHashMap<>();
+    // Sampling rate of each known type.
+    private static final ConcurrentHashMap<String, Integer> rates = new ConcurrentHashMap<>();
+    // Thread writing the records.
+    private static final Thread writer = new Thread(ServerLog::drain, "server-log");
+    // Set while the writer is parked because the queue was empty.
+    private static volatile boolean idle;
+    static {
+        writer.setDaemon(true);
+        writer.start();
+        // Write out what is still queued when the server stops.
+        Runtime.getRuntime().addShutdownHook(new Thread(ServerLog::awaitDrained));
+    }
+    /**
+     * Checks whether records of a level are logged, to skip building costly values.
+     * @param level The level.
+     * @return True if records of the level are logged.
+     */
+    static boolean enabled(Level level) {
+        return level.compareTo(LEVEL) <= 0;
+    }
+    /**
+     * Decides whether the records of one request are logged, given the sampling rate of its type.
+     * @param requestType The type of the request.
+     * @return True if the request is logged.
+     */
+    static boolean sampled(String requestType) {
+        // Unknown types share one counter, so made-up types cannot grow the maps.
+        String type = WireCodec.codeOf(requestType) != 0 ? requestType : OTHER_TYPE;
+        int rate = rates.computeIfAbsent(type, t -> Math.max(1, Integer.getInteger("log.sample." + t, DEFAULT_SAMPLE)));
+        return rate == 1 || seen.computeIfAbsent(type, t -> new AtomicLong()).getAndIncrement() % rate == 0;
+    }
+    /**
+     * Logs an error.
+     * @param event The name of the event.
+     * @param fields Keys and values, alternating.
+     */
+    static void error(String event, Object... fields) {
+        log(Level.ERROR, event, fields);
+    }
+    /**
+     * Logs a warning.
+     * @param event The name of the event.
+     * @param fields Keys and values, alternating.
+     */
+    static void warn(String event, Object... fields) {
+        log(Level.WARN, event, fields);
+    }
+    /**
+     * Logs an informational record.
+     * @param event The name of the event.
+     * @param fields Keys and values, alternating.
+     */
+    static void info(String event, Object... fields) {
+        log(Level.INFO, event, fields);
+    }
+    /**
+     * Logs a debugging record.
+     * @param event The name of the event.
+     * @param fields Keys and values, alternating.
+     */
+    static void debug(String event, Object... fields) {
+        log(Level.DEBUG, event, fields);
+    }
+    /**
+     * Queues a record for the writer, without blocking.
+     * @param level The severity of the record.
+     * @param event The name of the event.
+     * @param fields Keys and values, alternating. A RequestMessage value is written as its JSON.
+     */
+    static void log(Level level, String event, Object... fields) {
+        if (!enabled(level)) {
+            return;
+        }
+        if (queued.incrementAndGet() > LIMITS[level.ordinal()]) {
+            queued.decrementAndGet();
+            dropped.incrementAndGet(level.ordinal());
+            return;
+        }
+        queue.add(new Record(level, event, fields));
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+    }
+    /**
+     * Writes the queued records until the server stops, flushing whenever the queue runs empty.
+     */
+    private static void drain() {
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), 1 << 16);
+        StringBuilder line = new StringBuilder(256);
+        while (true) {
+            try {
+                // Report the records dropped since the last report, before the next record or when idle
+                long errors = dropped.getAndSet(Level.ERROR.ordinal(), 0);
+                long warnings = dropped.getAndSet(Level.WARN.ordinal(), 0);
+                long lost = errors + warnings + dropped.getAndSet(Level.INFO.ordinal(), 0) + dropped.getAndSet(Level.DEBUG.ordinal(), 0);
+                if (lost > 0) {
+                    line.setLength(0);
+                    format(line, new Record(Level.WARN, "logRecordsDropped",
+                            new Object[] {"count", lost, "warnings", warnings, "errors", errors}));
+                    out.append(line).append('\n');
+                }
+                Record record = queue.poll();
+                if (record == null) {
+                    out.flush();
+                    // Park until a record arrives, checking the queue again after announcing it
+                    idle = true;
+                    if (queue.isEmpty()) {
+                        LockSupport.park();
+                    }
+                    idle = false;
+                    continue;
+                }
+                queued.decrementAndGet();
+                line.setLength(0);
+                format(line, record);
+                out.append(line).append('\n');
+            } catch (IOException | RuntimeException e) {
+                // Never let a bad value or a closed stdout stop the writer
+                line.setLength(0);
+            }
+        }
+    }
+    /**
+     * Waits briefly for the writer to write out the queued records, when the server stops.
+     */
+    private static void awaitDrained() {
+        long deadline = System.currentTimeMillis() + 2000;
+        LockSupport.unpark(writer);
+        while ((!queue.isEmpty() || !idle) && System.currentTimeMillis() < deadline) {
+            LockSupport.parkNanos(1_000_000);
+        }
+    }
+    /**
+     * Turns a record into one line of text.
+     * @param line The builder to write the line into.
+     * @param record The record.
+     */
+    private static void format(StringBuilder line, Record record) {
+        line.append(Instant.ofEpochMilli(record.millis)).append(' ').append(record.level).append(' ').append(record.event);
+        for (int i = 0; i + 1 < record.fields.length; i += 2) {
+            line.append(' ').append(record.fields[i]).append('=');
+            Object value = record.fields[i + 1];
+            String text = value instanceof RequestMessage ? MessageCodec.GSON.toJson(value) : String.valueOf(value);
+            appendValue(line, text);
+        }
+    }
+    /**
+     * Writes a value, cut to the longest value written and quoted if it holds spaces or quotes.
+     * @param line The builder to write the value into.
+     * @param text The value.
+     */
+    private static void appendValue(StringBuilder line, String text) {
+        int length = Math.min(text.length(), MAX_VALUE);
+        boolean quote = text.isEmpty();
+        for (int i = 0; i < length && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c <= ' ' || c == '"' || c == '=';
+        }
+        if (!quote) {
+            line.append(text, 0, length);
+        } else {
+            line.append('"');
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                if (c == '"' || c == '\\') {
+                    line.append('\\').append(c);
+                } else if (c == '\n') {
+                    line.append("\\n");
+                } else if (c < ' ') {
+                    line.append(' ');
+                } else {
+                    line.append(c);
+                }
+            }
+            line.append('"');
+        }
+        if (text.length() > length) {
+            line.append("...(").append(text.length() - length).append(" more)");
+        }
+    }
+}
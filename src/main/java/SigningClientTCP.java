@@ -12,12 +12,17 @@
 
 // Importing necessary libraries and classes.
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
 import java.io.*;
 import java.net.Socket;
 import java.security.NoSuchAlgorithmException;
 import java.util.Random;
 import java.security.MessageDigest;
 import java.util.Scanner;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.math.BigInteger;
 
 public class SigningClientTCP {
@@ -27,6 +32,12 @@ public class SigningClientTCP {
     private static BigInteger[] rsaVars =  getRSA();
     // Get unique client ID
     private static String clientID = getClientID(rsaVars);
+    // Gson printing the blocks of a view one field per line
+    private static final Gson PRETTY_JSON = new GsonBuilder().setPrettyPrinting().create();
+    // Send and receive length-prefixed frames, for a server running with -Dserver.mode=nio
+    private static final boolean LENGTH_FRAMED = "length".equals(System.getProperty("client.framing"));
+    // Speak the compact binary protocol instead of JSON, with -Dclient.protocol=binary
+    private static final boolean BINARY = "binary".equals(System.getProperty("client.protocol"));
     public static void main(String[] args) {
         // Socket for client-server communication
         Socket clientSocket = null;
@@ -35,6 +46,8 @@ public class SigningClientTCP {
             int serverPort = 7777;
             // Establish connection with the server
             clientSocket = new Socket("localhost", serverPort);
+            // Read and write every message through the same codec, matching responses by request ID
+            PipelinedConnection connection = new PipelinedConnection(MessageCodec.connect(clientSocket, LENGTH_FRAMED, BINARY));
             // Scanner for user input
             Scanner scanner = new Scanner(System.in).useDelimiter("\\n");
             // Variable to control program execution
@@ -65,7 +78,7 @@ public class SigningClientTCP {
                         // Request to get basic view of blockchain
                         request.setRequestType("getBasicView");
                         // Transmit request and receive response
-                        response = transmit(clientSocket, request);
+                        response = transmit(connection, request);
                         // Display response
                         System.out.println(response.getResponse());
                         break;
@@ -83,22 +96,26 @@ public class SigningClientTCP {
                         // Record start time
                         startTime = System.currentTimeMillis();
                         // Transmit request and receive response
-                        response = transmit(clientSocket, request);
+                        response = transmit(connection, request);
                         // Record end time
                         endTime = System.currentTimeMillis();
                         // Display response and execution time
                         System.out.println(response.getResponse());
-                        System.out.println("Total execution time to add this block was " + (endTime - startTime) + " milliseconds");
+                        System.out.println("Total execution time to submit this transaction was " + (endTime - startTime) + " milliseconds");
                         break;
                     case 2:
                         // Request to verify entire blockchain
                         System.out.println("Verifying entire chain");
                         // Set request type
                         request.setRequestType("verifyChain");
+                        // Prompt user for a full audit or a check of new blocks only
+                        System.out.println("Enter full for a full audit, parallel for a full audit on all cores, anything else to only check new blocks");
+                        // Set verification mode input
+                        request.setVar1(scanner.next());
                         // Record start time
                         startTime = System.currentTimeMillis();
                         // Transmit request and receive response
-                        response = transmit(clientSocket, request);
+                        response = transmit(connection, request);
                         // Display response and execution time
                         System.out.println(response.getResponse());
                         endTime = System.currentTimeMillis();
@@ -109,9 +126,19 @@ public class SigningClientTCP {
                         System.out.println("View the Blockchain");
                         // Set request type
                         request.setRequestType("getFullView");
+                        // Prompt user for the first block and the page size
+                        System.out.println("Enter the index of the first block (0 for the start, or the next index of an earlier view for the new blocks only)");
+                        request.setVar1(scanner.next());
+                        System.out.println("Enter the number of blocks to view");
+                        request.setVar2(scanner.next());
                         // Transmit request and receive response
-                        response = transmit(clientSocket, request);
-                        // Display response
+                        response = transmit(connection, request);
+                        // Display every block of the page, then the position in the chain
+                        if (response.getBlocks() != null) {
+                            for (JsonElement blk : response.getBlocks().getBlocks()) {
+                                System.out.println(PRETTY_JSON.toJson(blk));
+                            }
+                        }
                         System.out.println(response.getResponse());
                         break;
                     case 4:
@@ -129,7 +156,7 @@ public class SigningClientTCP {
                         // Set new data input
                         request.setVar2(scanner.next());
                         // Transmit request and receive response
-                        response = transmit(clientSocket, request);
+                        response = transmit(connection, request);
                         // Display response
                         System.out.println(response.getResponse());
                         break;
@@ -141,7 +168,7 @@ public class SigningClientTCP {
                         // Record start time
                         startTime = System.currentTimeMillis();
                         // Transmit request and receive response
-                        response = transmit(clientSocket, request);
+                        response = transmit(connection, request);
                         // Record end time
                         endTime = System.currentTimeMillis();
                         // Display response and execution time
@@ -152,13 +179,182 @@ public class SigningClientTCP {
                         // Request to exit the client program
                         request.setRequestType("clientExit");
                         // Transmit request and receive response
-                        response = transmit(clientSocket, request);
+                        response = transmit(connection, request);
                         // Display response and exit message
                         System.out.println(response.getResponse());
                         System.out.println("Exiting!");
                         // Set loop control variable to end loop
                         runVar = false;
                         break;
+                    case 7:
+                        // Request the status of a mining ticket
+                        request.setRequestType("getTicketStatus");
+                        // Prompt user to enter the ticket
+                        System.out.println("Enter ticket number");
+                        // Set ticket input
+                        request.setVar1(scanner.next());
+                        // Transmit request and receive response
+                        response = transmit(connection, request);
+                        // Display response
+                        System.out.println(response.getResponse());
+                        break;
+                    case 8:
+                        // Request to cancel the mining of a ticket's block
+                        request.setRequestType("cancelTicket");
+                        // Prompt user to enter the ticket
+                        System.out.println("Enter ticket number to cancel");
+                        // Set ticket input
+                        request.setVar1(scanner.next());
+                        // Transmit request and receive response
+                        response = transmit(connection, request);
+                        // Display response
+                        System.out.println(response.getResponse());
+                        break;
+                    case 9:
+                        // Request a proof that a transaction is in a block
+                        request.setRequestType("getInclusionProof");
+                        // Prompt user to enter block ID
+                        System.out.println("Enter block ID of block holding the transaction");
+                        // Set block ID input
+                        request.setVar1(String.valueOf(scanner.nextInt()));
+                        // Prompt user to enter the transaction
+                        System.out.println("Enter transaction");
+                        // Set transaction input
+                        request.setVar2(scanner.next());
+                        // Prompt user to enter the block hash they already trust
+                        System.out.println("Enter the hash you trust for that block, e.g. from the ticket of your transaction");
+                        String trustedHash = scanner.next();
+                        // Transmit request and receive response
+                        response = transmit(connection, request);
+                        // Display response
+                        System.out.println(response.getResponse());
+                        // Check the proof locally against the trusted hash if the server sent one
+                        if (response.getResponse().startsWith("{")) {
+                            MerkleTree.Proof proof = MessageCodec.GSON.fromJson(response.getResponse(), MerkleTree.Proof.class);
+                            System.out.println("Inclusion proof verified against the trusted block hash: "
+                                    + MerkleTree.verify(proof, trustedHash));
+                        }
+                        break;
+                    case 10:
+                        // Request the difficulty statistics of a block range
+                        request.setRequestType("getRangeStats");
+                        // Prompt user to enter the range
+                        System.out.println("Enter block ID of first block in range");
+                        request.setVar1(scanner.next());
+                        System.out.println("Enter block ID of last block in range");
+                        request.setVar2(scanner.next());
+                        // Transmit request and receive response
+                        response = transmit(connection, request);
+                        // Display response
+                        System.out.println(response.getResponse());
+                        break;
+                    case 11:
+                        // Request a block by its hash
+                        request.setRequestType("getBlockByHash");
+                        // Prompt user to enter the hash
+                        System.out.println("Enter block hash");
+                        request.setVar1(scanner.next());
+                        // Transmit request and receive response
+                        response = transmit(connection, request);
+                        // Display response
+                        System.out.println(response.getResponse());
+                        break;
+                    case 12:
+                        // Request the blocks mined in a time window
+                        request.setRequestType("getBlocksByTimeRange");
+                        // Prompt user to enter the window
+                        System.out.println("Enter start time (yyyy-mm-dd hh:mm:ss or epoch milliseconds)");
+                        request.setVar1(scanner.next());
+                        System.out.println("Enter end time (yyyy-mm-dd hh:mm:ss or epoch milliseconds)");
+                        request.setVar2(scanner.next());
+                        // Transmit request and receive response
+                        response = transmit(connection, request);
+                        // Display response
+                        System.out.println(response.getResponse());
+                        break;
+                    case 13:
+                        // Search the transactions of every block for some words
+                        request.setRequestType("searchTransactions");
+                        // Prompt user to enter the words and the page
+                        System.out.println("Enter the words to search for");
+                        request.setVar1(scanner.next());
+                        System.out.println("Enter the offset of the first match to show (0 for the first page)");
+                        request.setVar2(scanner.next());
+                        // Transmit request and receive response
+                        response = transmit(connection, request);
+                        // Display response
+                        System.out.println(response.getResponse());
+                        break;
+                    case 14:
+                        // Submit several transactions without waiting for each one
+                        System.out.println("Enter Difficulty > 1");
+                        String difficulty = scanner.next();
+                        System.out.println("Enter the transactions, separated by ;");
+                        String[] transactions = scanner.next().split(";");
+                        // Record start time
+                        startTime = System.currentTimeMillis();
+                        // Send every request first, then wait for the responses in order
+                        List<CompletableFuture<ResponseMessage>> futures = new ArrayList<>();
+                        for (String tx : transactions) {
+                            RequestMessage add = new RequestMessage();
+                            add.setRequestType("addBlock");
+                            add.setVar1(difficulty);
+                            add.setVar2(tx);
+                            futures.add(connection.send(signRequest(add)));
+                        }
+                        for (CompletableFuture<ResponseMessage> future : futures) {
+                            System.out.println(future.join().getResponse());
+                        }
+                        // Record end time
+                        endTime = System.currentTimeMillis();
+                        System.out.println("Total execution time to submit " + transactions.length + " transactions was " + (endTime - startTime) + " milliseconds");
+                        break;
+                    case 15:
+                        // Submit several transactions in one batch under a single signature
+                        request.setRequestType("batch");
+                        System.out.println("Enter Difficulty > 1");
+                        String batchDifficulty = scanner.next();
+                        System.out.println("Enter the transactions, separated by ;");
+                        List<RequestMessage> operations = new ArrayList<>();
+                        for (String tx : scanner.next().split(";")) {
+                            RequestMessage add = new RequestMessage();
+                            add.setRequestType("addBlock");
+                            add.setVar1(batchDifficulty);
+                            add.setVar2(tx);
+                            operations.add(add);
+                        }
+                        request.setOperations(operations);
+                        // Record start time
+                        startTime = System.currentTimeMillis();
+                        // Transmit request and receive response
+                        response = transmit(connection, request);
+                        // Record end time
+                        endTime = System.currentTimeMillis();
+                        // Display the result of every operation, then the summary
+                        if (response.getResults() != null) {
+                            for (ResponseMessage result : response.getResults()) {
+                                System.out.println(result.getResponse());
+                            }
+                        }
+                        System.out.println(response.getResponse());
+                        System.out.println("Total execution time to submit the batch was " + (endTime - startTime) + " milliseconds");
+                        break;
+                    case 16:
+                        // Ask the server to compress large frames on this connection
+                        request.setRequestType("setCompression");
+                        System.out.println("Enter deflate, gzip or none");
+                        request.setVar1(scanner.next());
+                        System.out.println("Enter the smallest message to compress, in bytes");
+                        request.setVar2(scanner.next());
+                        // Transmit request and receive response
+                        response = transmit(connection, request);
+                        // Compress the requests too once the server agreed
+                        if ("setCompression".equals(response.getResponseType())) {
+                            connection.setCompression(FrameCompression.parse(request.getVar1(), request.getVar2()));
+                        }
+                        // Display response
+                        System.out.println(response.getResponse());
+                        break;
                 }
                 System.out.println();
             }
@@ -179,35 +375,37 @@ public class SigningClientTCP {
     /**
      * Transmits a request message to the server and receives a response message.
      *
-     * @param clientSocket The socket used for communication with the server.
+     * @param connection The connection to the server.
      * @param request The request message to be transmitted.
      * @return The response message received from the server.
      */
-    private static ResponseMessage transmit(Socket clientSocket, RequestMessage request) {
+    private static ResponseMessage transmit(PipelinedConnection connection, RequestMessage request) {
+        try {
+            // Send the signed request and wait for its response
+            return connection.send(signRequest(request)).join();
+        } catch (Exception e) {
+            // Handle any exceptions that occur during transmission
+            throw new RuntimeException(e);
+        }
+    }
+    /**
+     * Sets the key and client ID of a request and signs it.
+     *
+     * @param request The request message to be signed.
+     * @return The same request message, signed.
+     */
+    private static RequestMessage signRequest(RequestMessage request) {
         try {
-            // Initialize input and output streams for communication
-            BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-            PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(clientSocket.getOutputStream())));
             // Set RSA variables and client ID in the request message
             request.setE(rsaVars[0]);
             request.setN(rsaVars[2]);
             request.setClientID(clientID);
             // Generate and set digital signature for the request message
-            String mySign = sign(rsaVars[1],rsaVars[2], request.getClientID() + request.getE() +
-                    request.getN() + request.getRequestType() +
-                    request.getVar1() + request.getVar2());
+            String mySign = sign(rsaVars[1],rsaVars[2], request.signedText());
             request.setSignature(mySign);
-            // Convert request message to JSON format
-            Gson gson = new Gson();
-            String req = gson.toJson(request);
-            // Send the JSON-formatted request message to the server
-            out.println(req);
-            out.flush();
-            // Receive the response message from the server and convert it from JSON format
-            String res = in.readLine();
-            return gson.fromJson(res,ResponseMessage.class);
+            return request;
         } catch (Exception e) {
-            // Handle any exceptions that occur during transmission
+            // Handle any exceptions that occur during signing
             throw new RuntimeException(e);
         }
     }
@@ -310,6 +508,16 @@ public class SigningClientTCP {
         System.out.println("4. Corrupt the chain.");
         System.out.println("5. Hide the corruption by recomputing hashes.");
         System.out.println("6. Exit");
+        System.out.println("7. Check the status of a mining ticket.");
+        System.out.println("8. Cancel the mining of a ticket.");
+        System.out.println("9. Get a proof that a transaction is in a block.");
+        System.out.println("10. View difficulty statistics of a block range.");
+        System.out.println("11. Find a block by its hash.");
+        System.out.println("12. Find the blocks mined in a time window.");
+        System.out.println("13. Search the transactions of the chain.");
+        System.out.println("14. Add several transactions without waiting for each one.");
+        System.out.println("15. Add several transactions in one signed batch.");
+        System.out.println("16. Compress large messages (needs length-prefixed frames).");
         // Read and return the user's selection.
         return scanner.nextInt();
     }
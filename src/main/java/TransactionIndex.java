@@ -0,0 +1,378 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Inverted index from the tokens of the transactions to the blocks holding them, for
+ * searching the chain on the server. A transaction is split into tokens on every character
+ * that is not a letter, a digit or an underscore, and tokens are matched case-insensitively.
+ * Every token maps to a sorted array of block indexes, and every block keeps an array of
+ * its own tokens' entries so it can be taken out of the index again when its data changes.
+ * Like ChainIndex the index is kept up to date as the chain changes: the chain indexes every
+ * block it appends and re-indexes a block changed in place right away.
+ * Memory is bounded by a cap on the number of distinct tokens and a cap on the number of
+ * postings, the block indexes over all tokens. While the tokens are capped a new token is
+ * left out; once the postings are, the tokens held by the most blocks are dropped, which
+ * frees the most memory and loses the least selective words. Every token left out or
+ * dropped is recorded in a Bloom filter and stays out of the index, so every token indexed
+ * lists every block holding it; any other new token is indexed whenever there is room for
+ * it. A search for a word missing from the index answers "not indexed" only if the filter
+ * holds the word, and otherwise knows that no block holds it, so a search never scans the
+ * chain. A false positive of the filter only leaves one more word out.
+ * Not thread safe for writes, the owning BlockChain changes it under its write lock.
+ */
+// Imports for necessary libraries and classes
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+class TransactionIndex {
+    // Default maximum number of distinct tokens to index.
+    static final int DEFAULT_MAX_TOKENS = 100000;
+    // Default maximum number of postings to keep, about 80 MB with the references back from the blocks.
+    static final long DEFAULT_MAX_POSTINGS = 10_000_000;
+    // Tokens of a block without any indexed token, shared.
+    private static final Postings[] NONE = new Postings[0];
+    // Number of bits of the filter of tokens left out per token of the cap, and of bits set per token.
+    private static final int EXCLUDED_BITS_PER_TOKEN = 16;
+    private static final int EXCLUDED_HASHES = 4;
+    /**
+     * Sorted block indexes of one token.
+     */
+    private static class Postings {
+        // The token.
+        final String token;
+        // Block indexes, sorted, in the first size slots; null once the token was dropped.
+        int[] blocks = new int[2];
+        // Number of block indexes.
+        int size;
+        /**
+         * Constructs the empty postings of a token.
+         * @param token The token.
+         */
+        Postings(String token) {
+            this.token = token;
+        }
+        /**
+         * Adds a block, keeping the indexes sorted.
+         * @param i The index of the block.
+         */
+        void add(int i) {
+            // Appended blocks go to the end without a search.
+            int at = size == 0 || blocks[size - 1] < i ? size : Arrays.binarySearch(blocks, 0, size, i);
+            if (at >= 0 && at < size) {
+                // Already present.
+                return;
+            }
+            at = at < 0 ? -at - 1 : at;
+            if (size == blocks.length) {
+                blocks = Arrays.copyOf(blocks, size * 2);
+            }
+            System.arraycopy(blocks, at, blocks, at + 1, size - at);
+            blocks[at] = i;
+            size++;
+        }
+        /**
+         * Removes a block.
+         * @param i The index of the block.
+         */
+        void remove(int i) {
+            int at = Arrays.binarySearch(blocks, 0, size, i);
+            if (at >= 0) {
+                System.arraycopy(blocks, at + 1, blocks, at, size - at - 1);
+                size--;
+            }
+        }
+        /**
+         * Checks whether a block is present.
+         * @param i The index of the block.
+         * @return True if the block holds the token.
+         */
+        boolean contains(int i) {
+            return Arrays.binarySearch(blocks, 0, size, i) >= 0;
+        }
+    }
+    /**
+     * One page of search results.
+     */
+    static class Page {
+        // Number of matching blocks over all pages.
+        final int total;
+        // Indexes of the matching blocks on this page.
+        final List<Integer> blocks;
+        // True if a word of the query is not indexed, so the blocks holding it are unknown.
+        final boolean notIndexed;
+        /**
+         * Constructs a page of search results.
+         * @param total The number of matching blocks over all pages.
+         * @param blocks The indexes of the matching blocks on this page.
+         * @param notIndexed True if a word of the query is not indexed.
+         */
+        Page(int total, List<Integer> blocks, boolean notIndexed) {
+            this.total = total;
+            this.blocks = blocks;
+            this.notIndexed = notIndexed;
+        }
+    }
+    // Maximum number of distinct tokens to index.
+    private final int maxTokens;
+    // Maximum number of postings to keep.
+    private final long maxPostings;
+    // Blocks holding each token.
+    private final HashMap<String, Postings> postings = new HashMap<>();
+    // Postings of the tokens indexed for each block, by block index.
+    private final ArrayList<Postings[]> tokensOf = new ArrayList<>();
+    // Total number of block indexes over all tokens.
+    private long postingCount;
+    // Total length of the indexed tokens.
+    private long tokenChars;
+    // Bloom filter of the tokens left out or dropped because of a cap.
+    private final long[] excluded;
+    // Number of tokens recorded in the filter.
+    private long excludedCount;
+    /**
+     * Constructs an empty transaction index.
+     * @param maxTokens The maximum number of distinct tokens to index.
+     * @param maxPostings The maximum number of postings to keep.
+     */
+    public TransactionIndex(int maxTokens, long maxPostings) {
+        this.maxTokens = maxTokens;
+        this.maxPostings = Math.max(1, maxPostings);
+        this.excluded = new long[(int) Math.min(1 << 26, Math.max(1024, (long) maxTokens * EXCLUDED_BITS_PER_TOKEN / 64))];
+    }
+    /**
+     * Indexes a block appended to the chain.
+     * @param i The index of the block, the number of blocks indexed so far.
+     * @param blk The block.
+     */
+    public void add(int i, Block blk) {
+        if (i != tokensOf.size()) {
+            throw new IllegalArgumentException("Block " + i + " appended after " + tokensOf.size() + " indexed blocks");
+        }
+        tokensOf.add(NONE);
+        index(i, blk);
+    }
+    /**
+     * Indexes a block again after it was changed in place.
+     * @param i The index of the block.
+     * @param blk The block with its new contents.
+     */
+    public void changed(int i, Block blk) {
+        if (i >= 0 && i < tokensOf.size()) {
+            unindex(i);
+            index(i, blk);
+        }
+    }
+    /**
+     * Drops every entry, for a chain that is rebuilt from scratch.
+     */
+    public void clear() {
+        postings.clear();
+        tokensOf.clear();
+        postingCount = 0;
+        tokenChars = 0;
+        Arrays.fill(excluded, 0);
+        excludedCount = 0;
+    }
+    /**
+     * Finds the blocks whose transactions hold every token of a query.
+     * @param query The text to search for.
+     * @param offset The number of matching blocks to skip.
+     * @param limit The maximum number of matching blocks to return.
+     * @return The requested page of matching blocks, in block order.
+     */
+    public Page search(String query, int offset, int limit) {
+        String[] terms = tokenize(List.of(query));
+        List<Integer> matches = new ArrayList<>();
+        boolean notIndexed = false;
+        if (terms.length > 0) {
+            // Look every term up, the rarest one first.
+            Postings[] lists = new Postings[terms.length];
+            boolean missing = false;
+            // A missing term that was never left out is in no block, which settles the search.
+            boolean absent = false;
+            for (int t = 0; t < terms.length; t++) {
+                lists[t] = postings.get(terms[t]);
+                missing |= lists[t] == null;
+                absent |= lists[t] == null && !isExcluded(terms[t]);
+            }
+            if (!missing) {
+                Arrays.sort(lists, (x, y) -> Integer.compare(x.size, y.size));
+                for (int k = 0; k < lists[0].size; k++) {
+                    int i = lists[0].blocks[k];
+                    boolean all = true;
+                    for (int t = 1; t < lists.length && all; t++) {
+                        all = lists[t].contains(i);
+                    }
+                    if (all) {
+                        matches.add(i);
+                    }
+                }
+            } else {
+                // Every missing term was left out, so the blocks holding them are unknown.
+                notIndexed = !absent;
+            }
+        }
+        int from = Math.min(Math.max(0, offset), matches.size());
+        int to = Math.min(matches.size(), from + Math.max(0, limit));
+        return new Page(matches.size(), new ArrayList<>(matches.subList(from, to)), notIndexed);
+    }
+    /**
+     * Describes the size of the index and roughly how much memory it takes.
+     * @return A one-line description of the index.
+     */
+    public String describe() {
+        // Rough sizes: map entry, key string and postings array per token, one int per posting
+        // and one reference back from its block, and an array of those references per block.
+        long bytes = postings.size() * 104L + tokenChars + postingCount * 8 + tokensOf.size() * 20L;
+        bytes += excluded.length * 8L;
+        return String.format("%,d of at most %,d tokens, %,d of at most %,d postings, about %,d bytes%s", postings.size(),
+                maxTokens, postingCount, maxPostings, bytes,
+                excludedCount > 0 ? String.format(", %,d tokens left out", excludedCount) : "");
+    }
+    /**
+     * Adds the tokens of one block to the index.
+     * @param i The index of the block.
+     * @param blk The block.
+     */
+    private void index(int i, Block blk) {
+        List<Postings> kept = new ArrayList<>();
+        for (String token : tokenize(blk.getData())) {
+            Postings list = postings.get(token);
+            if (list == null) {
+                // A token left out before may be missing from blocks indexed since, so it stays out
+                // for every indexed token to list every block holding it; others go in while there is room.
+                boolean wasExcluded = isExcluded(token);
+                if (wasExcluded || postings.size() >= maxTokens) {
+                    if (!wasExcluded) {
+                        exclude(token);
+                    }
+                    continue;
+                }
+                list = new Postings(token);
+                postings.put(token, list);
+                tokenChars += token.length();
+            }
+            list.add(i);
+            postingCount++;
+            kept.add(list);
+        }
+        tokensOf.set(i, kept.isEmpty() ? NONE : kept.toArray(new Postings[0]));
+        if (postingCount > maxPostings) {
+            dropCommonTokens();
+        }
+    }
+    /**
+     * Drops the tokens held by the most blocks until the postings are down to three quarters
+     * of the cap, so the next drop is many appends away. The references the blocks keep to
+     * the dropped tokens are cleared in the same pass.
+     */
+    private void dropCommonTokens() {
+        List<Postings> bySize = new ArrayList<>(postings.values());
+        bySize.sort((x, y) -> Integer.compare(y.size, x.size));
+        for (Postings list : bySize) {
+            if (postingCount <= maxPostings / 4 * 3) {
+                break;
+            }
+            postings.remove(list.token);
+            tokenChars -= list.token.length();
+            postingCount -= list.size;
+            list.blocks = null;
+            list.size = 0;
+            exclude(list.token);
+        }
+        for (int i = 0; i < tokensOf.size(); i++) {
+            Postings[] tokens = tokensOf.get(i);
+            int kept = 0;
+            for (Postings list : tokens) {
+                if (list.blocks != null) {
+                    tokens[kept++] = list;
+                }
+            }
+            if (kept < tokens.length) {
+                tokensOf.set(i, kept == 0 ? NONE : Arrays.copyOf(tokens, kept));
+            }
+        }
+    }
+    /**
+     * Takes the tokens of one block out of the index.
+     * @param i The index of the block.
+     */
+    private void unindex(int i) {
+        for (Postings list : tokensOf.get(i)) {
+            // A dropped token no longer lists any block.
+            if (list.blocks == null) {
+                continue;
+            }
+            list.remove(i);
+            postingCount--;
+            // Drop a token no block holds anymore.
+            if (list.size == 0) {
+                postings.remove(list.token);
+                tokenChars -= list.token.length();
+            }
+        }
+        tokensOf.set(i, NONE);
+    }
+    /**
+     * Records a token left out or dropped in the filter.
+     * @param token The token.
+     */
+    private void exclude(String token) {
+        long bits = excluded.length * 64L;
+        int h1 = mix(token.hashCode());
+        int h2 = mix(h1) | 1;
+        for (int j = 0; j < EXCLUDED_HASHES; j++) {
+            long bit = Math.floorMod(h1 + (long) j * h2, bits);
+            excluded[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        excludedCount++;
+    }
+    /**
+     * Checks whether a token may have been left out or dropped.
+     * @param token The token.
+     * @return False if the token was certainly never left out.
+     */
+    private boolean isExcluded(String token) {
+        long bits = excluded.length * 64L;
+        int h1 = mix(token.hashCode());
+        int h2 = mix(h1) | 1;
+        for (int j = 0; j < EXCLUDED_HASHES; j++) {
+            long bit = Math.floorMod(h1 + (long) j * h2, bits);
+            if ((excluded[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    /**
+     * Spreads the bits of a hash code, so close hash codes set unrelated bits of the filter.
+     * @param h The hash code.
+     * @return The mixed hash.
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+    /**
+     * Splits transactions into distinct lower case tokens.
+     * @param transactions The transactions to split.
+     * @return The distinct tokens, in order of first appearance.
+     */
+    static String[] tokenize(List<String> transactions) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String tx : transactions) {
+            for (String token : tx.toLowerCase().split("[^\\p{L}\\p{N}_]+")) {
+                if (!token.isEmpty()) {
+                    tokens.add(token);
+                }
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,348 @@
+/**
+ * Author: Dhanush Venkataramu
+ * Last Modified: 10/17/2026
+ *
+ * Compact binary encoding of the request and response messages, the alternative to JSON a
+ * client picks by opening the connection with MAGIC. Each message starts with a fixed-width
+ * header: the message type as a one-byte code (0 if the type follows as a string), a byte of
+ * flags and the 8-byte request ID. The public key, the signature and the client ID travel as
+ * raw big-endian bytes instead of decimal and hex text, and blocks as their fields, with the
+ * previous hash as its raw 32 bytes.
+ * Like BlockCodec, numbers are big-endian, strings are an int length followed by UTF-8 bytes,
+ * and a missing value is written as length -1. Messages are written to a DataOutputStream
+ * and read from a ByteBuffer over the received frame, without any intermediate text.
+ */
+// Imports for necessary libraries and classes
+import com.google.gson.JsonElement;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+class WireCodec {
+    // First bytes a client sends to speak the binary protocol; the server answers with the same
+    // bytes. The first byte can neither start a JSON line nor the length of a valid frame.
+    static final int MAGIC = 0xB10C0001;
+    // Message types with a one-byte code, the code being the position in this array plus one.
+    private static final String[] TYPES = {"getBasicView", "addBlock", "getTicketStatus", "cancelTicket",
+            "getInclusionProof", "getRangeStats", "getBlockByHash", "getBlocksByTimeRange", "searchTransactions",
+            "verifyChain", "getFullView", "corruptChain", "repairChain", "clientExit", "batch", "setCompression", "Error"};
+    // Header flags of a message.
+    private static final int HAS_REQUEST_ID = 1;
+    private static final int RAW_CLIENT_ID = 2;
+    private static final int RAW_SIGNATURE = 4;
+    private static final int HAS_BLOCKS = 8;
+    /**
+     * Writes a request.
+     * @param request The request to write.
+     * @param out The stream to write it to.
+     * @throws IOException If the stream cannot be written.
+     */
+    static void encode(RequestMessage request, DataOutputStream out) throws IOException {
+        String clientID = request.getClientID();
+        String signature = request.getSignature();
+        // The client ID and signature go out as raw bytes when they read back as the same text.
+        boolean rawClientID = clientID != null && isHex(clientID);
+        boolean rawSignature = signature != null && isDecimal(signature);
+        writeHeader(out, request.getRequestType(), request.getRequestId(),
+                (rawClientID ? RAW_CLIENT_ID : 0) | (rawSignature ? RAW_SIGNATURE : 0));
+        if (rawClientID) {
+            BlockCodec.writeBytes(out, Block.hexToBytes(clientID));
+        } else {
+            BlockCodec.writeString(out, clientID);
+        }
+        writeBigInteger(out, request.getE());
+        writeBigInteger(out, request.getN());
+        BlockCodec.writeString(out, request.getVar1());
+        BlockCodec.writeString(out, request.getVar2());
+        if (rawSignature) {
+            writeBigInteger(out, request.getSignatureValue());
+        } else {
+            BlockCodec.writeString(out, signature);
+        }
+        // The operations of a batch only carry their type and variables.
+        List<RequestMessage> operations = request.getOperations();
+        out.writeInt(operations == null ? -1 : operations.size());
+        if (operations != null) {
+            for (RequestMessage operation : operations) {
+                writeType(out, operation.getRequestType());
+                BlockCodec.writeString(out, operation.getVar1());
+                BlockCodec.writeString(out, operation.getVar2());
+            }
+        }
+    }
+    /**
+     * Reads a request.
+     * @param in The buffer to read it from, positioned at the start of the request.
+     * @return The request read.
+     */
+    static RequestMessage decodeRequest(ByteBuffer in) {
+        RequestMessage request = new RequestMessage();
+        int flags = readHeader(in, request::setRequestType, request::setRequestId);
+        if ((flags & RAW_CLIENT_ID) != 0) {
+            request.setClientID(Block.bytesToHex(BlockCodec.readBytes(in)));
+        } else {
+            request.setClientID(BlockCodec.readString(in));
+        }
+        request.setE(readBigInteger(in));
+        request.setN(readBigInteger(in));
+        request.setVar1(BlockCodec.readString(in));
+        request.setVar2(BlockCodec.readString(in));
+        if ((flags & RAW_SIGNATURE) != 0) {
+            // Kept as the number it arrived as, for verifySign to use directly.
+            request.setSignatureValue(readBigInteger(in));
+        } else {
+            request.setSignature(BlockCodec.readString(in));
+        }
+        // An operation takes at least its type and two lengths.
+        int count = BlockCodec.readCount(in, 9);
+        if (count >= 0) {
+            List<RequestMessage> operations = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                RequestMessage operation = new RequestMessage();
+                operation.setRequestType(readType(in, in.get() & 0xFF));
+                operation.setVar1(BlockCodec.readString(in));
+                operation.setVar2(BlockCodec.readString(in));
+                operations.add(operation);
+            }
+            request.setOperations(operations);
+        }
+        return request;
+    }
+    /**
+     * Writes a response, streaming the blocks of a page as they are fetched from the chain.
+     * @param response The response to write.
+     * @param out The stream to write it to.
+     * @throws IOException If the stream cannot be written.
+     * @throws IllegalArgumentException If the response holds a page read back from another response.
+     */
+    static void encode(ResponseMessage response, DataOutputStream out) throws IOException {
+        BlockPage page = response.getBlocks();
+        if (page != null && page.isReceived()) {
+            throw new IllegalArgumentException("Only pages of the chain can be sent");
+        }
+        writeHeader(out, response.getResponseType(), response.getRequestId(), page != null ? HAS_BLOCKS : 0);
+        BlockCodec.writeString(out, response.getResponse());
+        List<ResponseMessage> results = response.getResults();
+        out.writeInt(results == null ? -1 : results.size());
+        if (results != null) {
+            for (ResponseMessage result : results) {
+                encode(result, out);
+            }
+        }
+        if (page != null) {
+            // Every block is preceded by a 1, and the page ends with a 0.
+            page.writeBlocks(blk -> {
+                out.writeByte(1);
+                writeBlock(blk, out);
+            });
+            out.writeByte(0);
+        }
+    }
+    /**
+     * Reads a response. The blocks of a page are turned into the same JSON trees the JSON
+     * protocol would have sent.
+     * @param in The buffer to read it from, positioned at the start of the response.
+     * @return The response read.
+     */
+    static ResponseMessage decodeResponse(ByteBuffer in) {
+        ResponseMessage response = new ResponseMessage();
+        int flags = readHeader(in, response::setResponseType, response::setRequestId);
+        response.setResponse(BlockCodec.readString(in));
+        // A result takes at least its header, a length and a count.
+        int count = BlockCodec.readCount(in, 18);
+        if (count >= 0) {
+            List<ResponseMessage> results = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                results.add(decodeResponse(in));
+            }
+            response.setResults(results);
+        }
+        if ((flags & HAS_BLOCKS) != 0) {
+            List<JsonElement> blocks = new ArrayList<>();
+            while (in.get() != 0) {
+                blocks.add(Block.JSON.toJsonTree(readBlock(in)));
+            }
+            response.setBlocks(BlockPage.received(blocks));
+        }
+        return response;
+    }
+    /**
+     * Writes a block with its previous hash as raw bytes.
+     * @param blk The block to write.
+     * @param out The stream to write it to.
+     * @throws IOException If the stream cannot be written.
+     */
+    private static void writeBlock(Block blk, DataOutputStream out) throws IOException {
+        out.writeInt(blk.getIndex());
+        out.writeLong(blk.getTimestamp().getTime());
+        out.writeInt(blk.getTimestamp().getNanos());
+        out.writeInt(blk.getDifficulty());
+        // A block not mined yet has no nonce.
+        BigInteger nonce = blk.getNonce();
+        out.writeBoolean(nonce != null);
+        out.writeLong(nonce == null ? 0 : nonce.longValue());
+        String previousHash = blk.getPreviousHash();
+        BlockCodec.writeBytes(out, previousHash == null ? null : Block.hexToBytes(previousHash));
+        out.writeInt(blk.getData().size());
+        for (String tx : blk.getData()) {
+            BlockCodec.writeString(out, tx);
+        }
+    }
+    /**
+     * Reads a block written by writeBlock.
+     * @param in The buffer to read from.
+     * @return The block read.
+     */
+    private static Block readBlock(ByteBuffer in) {
+        int index = in.getInt();
+        Timestamp timestamp = new Timestamp(in.getLong());
+        timestamp.setNanos(in.getInt());
+        int difficulty = in.getInt();
+        boolean mined = in.get() != 0;
+        long nonce = in.getLong();
+        byte[] previousHash = BlockCodec.readBytes(in);
+        int count = BlockCodec.readCount(in, 4);
+        List<String> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(BlockCodec.readString(in));
+        }
+        Block blk = new Block(index, timestamp, transactions, difficulty);
+        if (previousHash != null) {
+            blk.setPreviousHash(Block.bytesToHex(previousHash));
+        }
+        if (mined) {
+            blk.setNonce(BigInteger.valueOf(nonce));
+        }
+        return blk;
+    }
+    /**
+     * Writes the fixed-width header of a message: type code, flags and request ID.
+     * @param out The stream to write to.
+     * @param type The type of the message.
+     * @param requestId The request ID, or null.
+     * @param flags The flags of the message, apart from HAS_REQUEST_ID.
+     * @throws IOException If the stream cannot be written.
+     */
+    private static void writeHeader(DataOutputStream out, String type, Long requestId, int flags) throws IOException {
+        int code = codeOf(type);
+        out.writeByte(code);
+        out.writeByte(flags | (requestId != null ? HAS_REQUEST_ID : 0));
+        out.writeLong(requestId == null ? 0 : requestId);
+        if (code == 0) {
+            BlockCodec.writeString(out, type);
+        }
+    }
+    /**
+     * Reads the header of a message written by writeHeader.
+     * @param in The buffer to read from.
+     * @param type Receives the type of the message.
+     * @param requestId Receives the request ID, or null.
+     * @return The flags of the message.
+     */
+    private static int readHeader(ByteBuffer in, Consumer<String> type, Consumer<Long> requestId) {
+        int code = in.get() & 0xFF;
+        int flags = in.get() & 0xFF;
+        long id = in.getLong();
+        type.accept(readType(in, code));
+        requestId.accept((flags & HAS_REQUEST_ID) != 0 ? id : null);
+        return flags;
+    }
+    /**
+     * Writes the type of a batch operation as its code, followed by the type itself if it has none.
+     * @param out The stream to write to.
+     * @param type The type.
+     * @throws IOException If the stream cannot be written.
+     */
+    private static void writeType(DataOutputStream out, String type) throws IOException {
+        int code = codeOf(type);
+        out.writeByte(code);
+        if (code == 0) {
+            BlockCodec.writeString(out, type);
+        }
+    }
+    /**
+     * Reads a type given by its code, or as a string after a code of 0.
+     * @param in The buffer to read from.
+     * @param code The code read.
+     * @return The type.
+     */
+    private static String readType(ByteBuffer in, int code) {
+        if (code == 0) {
+            return BlockCodec.readString(in);
+        }
+        if (code > TYPES.length) {
+            throw new IllegalArgumentException("Unknown message type code " + code);
+        }
+        return TYPES[code - 1];
+    }
+    /**
+     * Looks up the code of a message type.
+     * @param type The type.
+     * @return The code, or 0 if the type has none.
+     */
+    static int codeOf(String type) {
+        for (int i = 0; type != null && i < TYPES.length; i++) {
+            if (TYPES[i].equals(type)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+    /**
+     * Writes a number as its two's-complement big-endian bytes.
+     * @param out The stream to write to.
+     * @param value The number, or null.
+     * @throws IOException If the stream cannot be written.
+     */
+    private static void writeBigInteger(DataOutputStream out, BigInteger value) throws IOException {
+        BlockCodec.writeBytes(out, value == null ? null : value.toByteArray());
+    }
+    /**
+     * Reads a number written by writeBigInteger.
+     * @param in The buffer to read from.
+     * @return The number, or null.
+     */
+    private static BigInteger readBigInteger(ByteBuffer in) {
+        byte[] bytes = BlockCodec.readBytes(in);
+        return bytes == null ? null : new BigInteger(bytes);
+    }
+    /**
+     * Checks whether text is upper case hex that reads back the same from its bytes.
+     * @param text The text.
+     * @return True if the text can travel as raw bytes.
+     */
+    private static boolean isHex(String text) {
+        if (text.length() % 2 != 0) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'A' || c > 'F')) {
+                return false;
+            }
+        }
+        return true;
+    }
+    /**
+     * Checks whether text is a decimal number written the way BigInteger writes it.
+     * @param text The text.
+     * @return True if the text can travel as a raw number.
+     */
+    private static boolean isDecimal(String text) {
+        int start = text.startsWith("-") ? 1 : 0;
+        if (text.length() == start || (text.charAt(start) == '0' && text.length() > start + 1) || "-0".equals(text)) {
+            return false;
+        }
+        for (int i = start; i < text.length(); i++) {
+            if (text.charAt(i) < '0' || text.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}